@@ -0,0 +1,99 @@
+package com.augmentative.communication.controller;
+
+import com.augmentative.communication.service.FileSystemImageStore;
+import com.augmentative.communication.service.ImageStorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serving an image through {@link ImageController} from the file system store: resolving the
+ * content type, and a full GET that reads the image, and a revalidation answered with 304.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ImageServingBenchmark {
+
+    @Param({"3f9a1c2e-7b4d-4e8a-9c1f-2d6b8e0a4c7f.png", "3f9a1c2e-7b4d-4e8a-9c1f-2d6b8e0a4c7f.JPEG", "3f9a1c2e-7b4d-4e8a-9c1f-2d6b8e0a4c7f.bin"})
+    String filename;
+
+    @Param({"65536"})
+    int imageSize;
+
+    private Path uploadDir;
+    private ImageController imageController;
+    private final byte[] buffer = new byte[8192];
+
+    @Setup
+    public void setUp() throws IOException {
+        uploadDir = Files.createTempDirectory("image-benchmark");
+        FileSystemImageStore imageStore = new FileSystemImageStore();
+        ReflectionTestUtils.setField(imageStore, "uploadDir", uploadDir.toString());
+        byte[] image = new byte[imageSize];
+        ThreadLocalRandom.current().nextBytes(image);
+        Path source = Files.write(uploadDir.resolve("upload.tmp"), image);
+        imageStore.write(filename, source);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        imageController = new ImageController(new ImageStorageService(imageStore, null, null, meterRegistry), meterRegistry);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(uploadDir);
+    }
+
+    @Benchmark
+    public String contentType() {
+        return ImageController.contentTypeOf(filename);
+    }
+
+    @Benchmark
+    public long serveImage(Blackhole blackhole) throws IOException {
+        ResponseEntity<Resource> response = imageController.serveImage(filename, webRequest(null));
+        long sent = 0;
+        try (InputStream content = response.getBody().getInputStream()) {
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                blackhole.consume(buffer);
+                sent += read;
+            }
+        }
+        return sent;
+    }
+
+    @Benchmark
+    public ResponseEntity<Resource> serveNotModified() {
+        return imageController.serveImage(filename, webRequest("\"" + filename + "\""));
+    }
+
+    private ServletWebRequest webRequest(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/" + filename);
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
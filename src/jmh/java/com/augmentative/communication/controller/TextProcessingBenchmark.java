@@ -0,0 +1,76 @@
+package com.augmentative.communication.controller;
+
+import com.augmentative.communication.dto.ImageWordDTO;
+import com.augmentative.communication.dto.ProcessSentenceRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Java side of {@link TextProcessingController}: applying the script's conjugations to a
+ * sentence, and Base64 encoding synthesized speech for the JSON response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TextProcessingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Sentence {
+
+        @Param({"3", "12"})
+        int words;
+
+        ProcessSentenceRequest request;
+        String processedSentence;
+
+        @Setup
+        public void setUp() {
+            List<ImageWordDTO> sentence = new ArrayList<>(words);
+            StringBuilder processed = new StringBuilder();
+            for (int i = 0; i < words; i++) {
+                sentence.add(new ImageWordDTO((long) i, "sõna" + i, "/images/" + i + ".png", 1L));
+                processed.append(i > 0 ? ", " : "").append("'sõnale").append(i).append("'");
+            }
+            request = new ProcessSentenceRequest();
+            request.setSentence(sentence);
+            processedSentence = processed.toString();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Audio {
+
+        /** About 1, 5 and 20 seconds of 16 kHz 16-bit mono WAV. */
+        @Param({"32000", "160000", "640000"})
+        int audioBytes;
+
+        byte[] audio;
+
+        @Setup
+        public void setUp() {
+            audio = new byte[audioBytes];
+            ThreadLocalRandom.current().nextBytes(audio);
+        }
+    }
+
+    @Benchmark
+    public String applyConjugations(Sentence sentence) {
+        return TextProcessingController.applyConjugations(sentence.request, sentence.processedSentence);
+    }
+
+    @Benchmark
+    public String encodeAudio(Audio audio) {
+        return Base64.getEncoder().encodeToString(audio.audio);
+    }
+}
@@ -0,0 +1,84 @@
+package com.augmentative.communication.dto;
+
+import com.augmentative.communication.model.Category;
+import com.augmentative.communication.model.ImageWord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a whole board to DTOs, from loaded entities ({@link CategoryDTO#fromEntity}) and
+ * from the flat board projection ({@link CategoryDTO#fromBoardRows}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BoardMappingBenchmark {
+
+    @Param({"10", "50"})
+    int categories;
+
+    @Param({"20", "200"})
+    int wordsPerCategory;
+
+    private List<Category> entities;
+    private List<BoardRow> rows;
+    private ImageWord imageWord;
+
+    @Setup
+    public void setUp() {
+        entities = new ArrayList<>(categories);
+        rows = new ArrayList<>(categories * wordsPerCategory);
+        long imageWordId = 1;
+        for (long categoryId = 1; categoryId <= categories; categoryId++) {
+            Category category = new Category();
+            category.setId(categoryId);
+            category.setName("Category " + categoryId);
+            category.setImageUrl("/images/category-" + categoryId + ".png");
+            Set<ImageWord> imageWords = new LinkedHashSet<>();
+            for (int i = 0; i < wordsPerCategory; i++, imageWordId++) {
+                ImageWord word = new ImageWord();
+                word.setId(imageWordId);
+                word.setWord("sõna" + imageWordId);
+                word.setImageUrl("/images/word-" + imageWordId + ".png");
+                word.setCategory(category);
+                imageWords.add(word);
+                rows.add(new BoardRow(categoryId, category.getName(), category.getImageUrl(),
+                        imageWordId, word.getWord(), word.getImageUrl()));
+            }
+            category.setImageWords(imageWords);
+            entities.add(category);
+        }
+        imageWord = entities.get(0).getImageWords().iterator().next();
+    }
+
+    @Benchmark
+    public List<CategoryDTO> categoriesFromEntities() {
+        List<CategoryDTO> board = new ArrayList<>(entities.size());
+        for (Category category : entities) {
+            board.add(CategoryDTO.fromEntity(category));
+        }
+        return board;
+    }
+
+    @Benchmark
+    public List<CategoryDTO> categoriesFromBoardRows() {
+        return CategoryDTO.fromBoardRows(rows);
+    }
+
+    @Benchmark
+    public ImageWordDTO imageWordFromEntity() {
+        return ImageWordDTO.fromEntity(imageWord);
+    }
+}
@@ -0,0 +1,115 @@
+package com.augmentative.communication.filter;
+
+import com.augmentative.communication.repository.UserRepository;
+import com.augmentative.communication.service.UserStateCache;
+import com.augmentative.communication.util.JwtUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Authenticating a request in {@link JwtRequestFilter}, the work every API call pays before its
+ * controller: a token already verified and a user whose token version is cached (the common case),
+ * a new token whose signature is checked, a revoked token, and a request without a token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtRequestFilterBenchmark {
+
+    private static final int TOKEN_VERSION = 3;
+
+    private JwtRequestFilter filter;
+    private Cache<?, ?> verifiedTokens;
+    private MockHttpServletRequest request;
+    private MockHttpServletRequest revokedRequest;
+    private MockHttpServletRequest anonymousRequest;
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private Authentication authentication;
+    private final FilterChain chain = (request, response) ->
+            authentication = SecurityContextHolder.getContext().getAuthentication();
+
+    @Setup
+    public void setUp() throws ServletException, IOException {
+        JwtUtil jwtUtil = new JwtUtil(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtUtil, "secretString", "0123456789abcdef0123456789abcdef0123456789abcdef");
+        ReflectionTestUtils.setField(jwtUtil, "accessTokenTimeToLive", Duration.ofHours(1));
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 10_000L);
+        // @PostConstruct, package-private
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+        verifiedTokens = (Cache<?, ?>) ReflectionTestUtils.getField(jwtUtil, "verifiedTokens");
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findTokenVersionById(anyLong())).thenReturn(Optional.of(TOKEN_VERSION));
+        filter = new JwtRequestFilter(new UserStateCache(userRepository, 10_000, Duration.ofMinutes(5)), jwtUtil);
+
+        request = requestWithToken(jwtUtil.generateToken("benchmark", 1L, TOKEN_VERSION, List.of("ROLE_USER")));
+        revokedRequest = requestWithToken(jwtUtil.generateToken("benchmark", 1L, TOKEN_VERSION - 1, List.of("ROLE_USER")));
+        anonymousRequest = new MockHttpServletRequest("GET", "/api/images/board.png");
+        // Warms the token cache and the token version of the user
+        authenticate(request);
+        authenticate(revokedRequest);
+    }
+
+    @Benchmark
+    public Authentication filterCached() throws ServletException, IOException {
+        return authenticate(request);
+    }
+
+    /**
+     * Includes emptying the token cache first, so the signature is checked on every call.
+     */
+    @Benchmark
+    public Authentication filterSignature() throws ServletException, IOException {
+        verifiedTokens.invalidateAll();
+        return authenticate(request);
+    }
+
+    @Benchmark
+    public Authentication filterRevoked() throws ServletException, IOException {
+        return authenticate(revokedRequest);
+    }
+
+    @Benchmark
+    public Authentication filterAnonymous() throws ServletException, IOException {
+        return authenticate(anonymousRequest);
+    }
+
+    private Authentication authenticate(MockHttpServletRequest request) throws ServletException, IOException {
+        try {
+            filter.doFilter(request, response, chain);
+            return authentication;
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static MockHttpServletRequest requestWithToken(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/profiles/1/board");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
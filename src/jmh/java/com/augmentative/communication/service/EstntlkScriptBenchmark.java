@@ -0,0 +1,51 @@
+package com.augmentative.communication.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Java side of a call to the estnltk script: building its argument from the words and
+ * stripping its output. The subprocess itself is measured by the {@code estnltk.script} metric.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EstntlkScriptBenchmark {
+
+    @Param({"3", "12"})
+    int words;
+
+    private List<String> sentence;
+    private StringBuilder output;
+
+    @Setup
+    public void setUp() {
+        sentence = new ArrayList<>(words);
+        StringBuilder printed = new StringBuilder("[");
+        for (int i = 0; i < words; i++) {
+            sentence.add(" sõna" + i + " ");
+            printed.append(i > 0 ? ", " : "").append("'sõnale").append(i).append("'");
+        }
+        output = printed.append("]");
+    }
+
+    @Benchmark
+    public String scriptArgument() {
+        return EstntlkService.scriptArgument(sentence);
+    }
+
+    @Benchmark
+    public String parseScriptOutput() {
+        return EstntlkService.parseScriptOutput(output);
+    }
+}
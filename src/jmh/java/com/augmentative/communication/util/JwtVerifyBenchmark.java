@@ -0,0 +1,70 @@
+package com.augmentative.communication.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access token verification by {@link JwtUtil#verify}: a token already in the verified token
+ * cache (every request after the first), a new token whose signature is checked, and a forged one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtVerifyBenchmark {
+
+    private JwtUtil jwtUtil;
+    private Cache<?, ?> verifiedTokens;
+    private String token;
+    private String forgedToken;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = newJwtUtil();
+        verifiedTokens = (Cache<?, ?>) ReflectionTestUtils.getField(jwtUtil, "verifiedTokens");
+        token = jwtUtil.generateToken("benchmark", 1L, 0, List.of("ROLE_USER"));
+        forgedToken = token.substring(0, token.length() - 4) + (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+        jwtUtil.verify(token);
+    }
+
+    @Benchmark
+    public Optional<Claims> verifyCached() {
+        return jwtUtil.verify(token);
+    }
+
+    /**
+     * Includes emptying the cache first, so the signature is checked on every call.
+     */
+    @Benchmark
+    public Optional<Claims> verifySignature() {
+        verifiedTokens.invalidateAll();
+        return jwtUtil.verify(token);
+    }
+
+    @Benchmark
+    public Optional<Claims> verifyForged() {
+        return jwtUtil.verify(forgedToken);
+    }
+
+    private static JwtUtil newJwtUtil() {
+        JwtUtil jwtUtil = new JwtUtil(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtUtil, "secretString", "0123456789abcdef0123456789abcdef0123456789abcdef");
+        ReflectionTestUtils.setField(jwtUtil, "accessTokenTimeToLive", Duration.ofHours(1));
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 10_000L);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+}
@@ -0,0 +1,49 @@
+package com.augmentative.communication.config;
+
+import com.augmentative.communication.service.Bulkheads;
+import com.augmentative.communication.util.Bulkhead;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint {@code /actuator/bulkheads}: GET shows the state of each bulkhead, POST with
+ * {@code {"virtualThreads": true}} switches them between platform and virtual threads for the whole server.
+ * Only reachable with the Prometheus scrape token (see {@link SecurityConfig}). Virtual threads need Java 21+;
+ * on older JVMs the switch has no effect and every bulkhead reports {@code virtualThreads: false}.
+ */
+@Component
+@Endpoint(id = "bulkheads")
+public class BulkheadEndpoint {
+
+    private final Bulkheads bulkheads;
+
+    /**
+     * The state of one bulkhead.
+     */
+    public record BulkheadState(String name, boolean virtualThreads, int active, int queued, int maxConcurrent, int maxQueued) {
+    }
+
+    public BulkheadEndpoint(Bulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @ReadOperation
+    public List<BulkheadState> bulkheads() {
+        return bulkheads.all().stream().map(BulkheadEndpoint::stateOf).toList();
+    }
+
+    @WriteOperation
+    public List<BulkheadState> setVirtualThreads(boolean virtualThreads) {
+        bulkheads.setUseVirtualThreads(virtualThreads);
+        return bulkheads();
+    }
+
+    private static BulkheadState stateOf(Bulkhead bulkhead) {
+        return new BulkheadState(bulkhead.getName(), bulkhead.isUsingVirtualThreads(), bulkhead.getActive(),
+                bulkhead.getQueued(), bulkhead.getMaxConcurrent(), bulkhead.getMaxQueued());
+    }
+}
@@ -0,0 +1,74 @@
+package com.augmentative.communication.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Configures the Caffeine caches behind Hibernate's second-level and query cache.
+ *
+ * Every region is created up front with its own size limit, so a region name used in an
+ * entity's {@code @Cache} annotation that isn't listed here fails at startup instead of
+ * silently getting an unbounded cache. Entries expire after {@code cache.l2.time-to-live}
+ * as a safety net; Hibernate already invalidates them on every write it performs.
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final String USER_REGION = "users";
+    public static final String CHILD_PROFILE_REGION = "childProfiles";
+    public static final String CHILD_PROFILE_CATEGORIES_REGION = "childProfiles.categories";
+    public static final String CATEGORY_REGION = "categories";
+    public static final String CATEGORY_IMAGE_WORDS_REGION = "categories.imageWords";
+    public static final String IMAGE_WORD_REGION = "imageWords";
+
+    @Value("${cache.l2.time-to-live:10m}")
+    private Duration timeToLive;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+
+        createRegion(cacheManager, USER_REGION, 10_000, timeToLive);
+        createRegion(cacheManager, CHILD_PROFILE_REGION, 10_000, timeToLive);
+        createRegion(cacheManager, CHILD_PROFILE_CATEGORIES_REGION, 10_000, timeToLive);
+        createRegion(cacheManager, CATEGORY_REGION, 50_000, timeToLive);
+        createRegion(cacheManager, CATEGORY_IMAGE_WORDS_REGION, 50_000, timeToLive);
+        createRegion(cacheManager, IMAGE_WORD_REGION, 250_000, timeToLive);
+        createRegion(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, 20_000, timeToLive);
+        // Holds one last-modified timestamp per table; must never expire before the query results do
+        createRegion(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, 1_000, null);
+        return cacheManager;
+    }
+
+    /**
+     * Hands the cache manager to Hibernate and fails startup if a cached entity,
+     * collection or query uses a region that wasn't created above.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static void createRegion(CacheManager cacheManager, String name, long maximumSize, Duration expireAfterWrite) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        if (expireAfterWrite != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+        }
+        cacheManager.createCache(name, configuration);
+    }
+}
@@ -0,0 +1,70 @@
+package com.augmentative.communication.config;
+
+import com.augmentative.communication.dto.AuthenticatedUser;
+import com.augmentative.communication.dto.MoveDTO;
+import com.augmentative.communication.event.OwnershipChangedEvent.Type;
+import com.augmentative.communication.service.OwnershipIndex;
+import org.springframework.security.access.PermissionEvaluator;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Backs {@code hasPermission(...)} in {@code @PreAuthorize} expressions: a user may access
+ * their own account and everything below it, and nothing else. There are no shared boards,
+ * so the permission name (e.g. {@code 'read'} or {@code 'write'}) isn't distinguished.
+ *
+ * Supported target types are {@code User}, {@code ChildProfile}, {@code Category} and
+ * {@code ImageWord}. The target can be an ID, or a list of IDs or {@link MoveDTO}s, all of
+ * which must be owned by the user.
+ */
+@Component
+public class OwnershipPermissionEvaluator implements PermissionEvaluator {
+
+    private final OwnershipIndex ownershipIndex;
+
+    public OwnershipPermissionEvaluator(OwnershipIndex ownershipIndex) {
+        this.ownershipIndex = ownershipIndex;
+    }
+
+    @Override
+    public boolean hasPermission(Authentication authentication, Object targetDomainObject, Object permission) {
+        // Only checks by ID are used
+        return false;
+    }
+
+    @Override
+    public boolean hasPermission(Authentication authentication, Serializable targetId, String targetType, Object permission) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
+            return false;
+        }
+        return owns(user.id(), targetId, targetType);
+    }
+
+    private boolean owns(long userId, Object target, String targetType) {
+        if (target instanceof Collection<?> targets) {
+            for (Object element : targets) {
+                if (!owns(userId, element, targetType)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (target instanceof MoveDTO move) {
+            // The services check that the new neighbour is a sibling of the moved row
+            return owns(userId, move.getId(), targetType);
+        }
+        if (!(target instanceof Long id)) {
+            return false;
+        }
+        return switch (targetType) {
+            case "User" -> id == userId;
+            case "ChildProfile" -> ownershipIndex.isOwner(userId, Type.CHILD_PROFILE, id);
+            case "Category" -> ownershipIndex.isOwner(userId, Type.CATEGORY, id);
+            case "ImageWord" -> ownershipIndex.isOwner(userId, Type.IMAGE_WORD, id);
+            default -> false;
+        };
+    }
+}
@@ -2,8 +2,18 @@ package com.augmentative.communication.config;
 
 import com.augmentative.communication.filter.JwtRequestFilter;
 import com.augmentative.communication.service.UserDetailsServiceImpl;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.PermissionEvaluator;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -15,6 +25,11 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
 
 /**
  * Spring Security configuration class.
@@ -37,16 +52,30 @@ public class SecurityConfig {
      * Defines which requests are authorized and how sessions are managed.
      *
      * @param http The HttpSecurity object to configure.
+     * @param scrapeToken The bearer token Prometheus (or an operator) reads metrics with; none if empty.
+     * @param scraperAddresses The addresses (or CIDR ranges) Prometheus may scrape metrics from without a token;
+     *                         none by default. Behind a reverse proxy every client has the proxy's address, so
+     *                         only use this when the application is reached directly.
      * @return The configured SecurityFilterChain.
      * @throws Exception if an error occurs during configuration.
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+            @Value("${metrics.prometheus.scrape-token:}") String scrapeToken,
+            @Value("${metrics.prometheus.scraper-addresses:}") List<String> scraperAddresses) throws Exception {
+        byte[] expectedAuthorization = scrapeToken.isBlank() ? null : ("Bearer " + scrapeToken).getBytes(StandardCharsets.UTF_8);
+        List<IpAddressMatcher> scrapers = scraperAddresses.stream().filter(address -> !address.isBlank()).map(IpAddressMatcher::new).toList();
         http
                 .csrf(AbstractHttpConfigurer::disable) // Disable CSRF for stateless API
                 .authorizeHttpRequests(authorize -> authorize
-                        .requestMatchers("/api/users/register", "/api/users/login", "/api/images/**").permitAll() // Allow registration, login, and image retrieval without authentication
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll() // Writes the result of an already authorized request that returned a CompletableFuture
+                        .requestMatchers("/api/users/register", "/api/users/login", "/api/users/refresh", "/api/users/logout", "/api/images/**").permitAll() // Allow registration, login, token refresh, and image retrieval without authentication
                         .requestMatchers("/api/**").authenticated() // All other /api endpoints require authentication
+                        .requestMatchers("/ws/**").permitAll() // WebSocket handshakes are authenticated by JwtHandshakeInterceptor
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/prometheus", "/actuator/metrics", "/actuator/metrics/**", "/actuator/bulkheads").access((authentication, context) ->
+                                new AuthorizationDecision(isScraper(context.getRequest(), expectedAuthorization, scrapers))) // Metrics and the server-wide bulkhead switch are for Prometheus and operators with the scrape token, not for parent accounts
+                        .requestMatchers("/actuator/**").authenticated()
                         .anyRequest().permitAll() // Permit all other requests (e.g., static content, favicon)
                 )
                 .sessionManagement(session -> session
@@ -56,6 +85,18 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Whether a request comes from Prometheus: it carries the scrape token, or comes from one of the scraper addresses.
+     */
+    private static boolean isScraper(HttpServletRequest request, byte[] expectedAuthorization, List<IpAddressMatcher> scrapers) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (expectedAuthorization != null && authorization != null
+                && MessageDigest.isEqual(expectedAuthorization, authorization.getBytes(StandardCharsets.UTF_8))) {
+            return true;
+        }
+        return scrapers.stream().anyMatch(scraper -> scraper.matches(request));
+    }
+
     /**
      * Provides the PasswordEncoder bean.
      * Uses BCryptPasswordEncoder for strong password hashing.
@@ -80,4 +121,22 @@ public class SecurityConfig {
         authProvider.setPasswordEncoder(passwordEncoder());
         return new ProviderManager(authProvider);
     }
+
+    /**
+     * Makes {@code hasPermission(...)} in {@code @PreAuthorize} expressions check ownership.
+     * Static and with a lazy evaluator, so method security can be set up before the
+     * repositories behind the evaluator exist.
+     *
+     * @param permissionEvaluator The {@link OwnershipPermissionEvaluator}.
+     * @param applicationContext The context, for bean references in expressions.
+     * @return The expression handler used by method security.
+     */
+    @Bean
+    static MethodSecurityExpressionHandler methodSecurityExpressionHandler(@Lazy PermissionEvaluator permissionEvaluator,
+                                                                           ApplicationContext applicationContext) {
+        DefaultMethodSecurityExpressionHandler expressionHandler = new DefaultMethodSecurityExpressionHandler();
+        expressionHandler.setPermissionEvaluator(permissionEvaluator);
+        expressionHandler.setApplicationContext(applicationContext);
+        return expressionHandler;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.augmentative.communication.config;
+
+import com.augmentative.communication.controller.DeviceWebSocketHandler;
+import com.augmentative.communication.filter.JwtHandshakeInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+import java.time.Duration;
+
+/**
+ * Registers the device channel at {@code /ws/device}, authenticated by {@link JwtHandshakeInterceptor}.
+ */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final DeviceWebSocketHandler deviceWebSocketHandler;
+    private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
+
+    public WebSocketConfig(DeviceWebSocketHandler deviceWebSocketHandler, JwtHandshakeInterceptor jwtHandshakeInterceptor) {
+        this.deviceWebSocketHandler = deviceWebSocketHandler;
+        this.jwtHandshakeInterceptor = jwtHandshakeInterceptor;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(deviceWebSocketHandler, "/ws/device")
+                .addInterceptors(jwtHandshakeInterceptor)
+                .setAllowedOrigins("http://localhost:61900");
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer(
+            @Value("${websocket.max-text-message-size:65536}") int maxTextMessageSize,
+            @Value("${websocket.idle-timeout:10m}") Duration idleTimeout) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(maxTextMessageSize);
+        container.setMaxSessionIdleTimeout(idleTimeout.toMillis());
+        return container;
+    }
+}
@@ -1,7 +1,9 @@
 package com.augmentative.communication.controller;
 
 import com.augmentative.communication.dto.CategoryDTO;
+import com.augmentative.communication.dto.MoveDTO;
 import com.augmentative.communication.service.CategoryService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -10,10 +12,14 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * REST Controller for Category-related operations.
  * Handles CRUD operations for categories within child profiles.
+ *
+ * Categories belong to the user who owns their child profile. Requests for anyone else's
+ * categories or profiles get HTTP status 403 (Forbidden).
  */
 @RestController
 @RequestMapping("/api/categories")
@@ -26,12 +32,12 @@ public class CategoryController {
     }
 
     /**
-     * Retrieves all categories for a specific child profile, ordered by orderNumber. Requires authentication.
+     * Retrieves all categories for a specific child profile, ordered by orderNumber.
      *
      * @param childProfileId The ID of the child profile.
      * @return A list of category DTOs.
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#childProfileId, 'ChildProfile', 'read')")
     @GetMapping("/profile/{childProfileId}")
     public ResponseEntity<List<CategoryDTO>> getCategoriesByChildProfileId(@PathVariable Long childProfileId) {
         List<CategoryDTO> categories = categoryService.findByChildProfileId(childProfileId);
@@ -39,12 +45,12 @@ public class CategoryController {
     }
 
     /**
-     * Retrieves a specific category by its ID. Requires authentication.
+     * Retrieves a specific category by its ID.
      *
      * @param id The ID of the category.
      * @return The category DTO if found, or HTTP status 404 (Not Found).
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#id, 'Category', 'read')")
     @GetMapping("/{id}")
     public ResponseEntity<CategoryDTO> getCategoryById(@PathVariable Long id) {
         return categoryService.findById(id)
@@ -53,7 +59,7 @@ public class CategoryController {
     }
 
     /**
-     * Creates a new category for a given child profile with a file upload. Requires authentication.
+     * Creates a new category for a given child profile with a file upload.
      *
      * @param childProfileId The ID of the child profile to associate the category with.
      * @param name The name of the category.
@@ -61,7 +67,7 @@ public class CategoryController {
      * @param imageFile The image file for the category.
      * @return The created category DTO with HTTP status 201 (Created).
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#childProfileId, 'ChildProfile', 'write')")
     @PostMapping(value = "/profile/{childProfileId}", consumes = {"multipart/form-data"})
     public ResponseEntity<CategoryDTO> createCategory(
             @PathVariable Long childProfileId,
@@ -73,6 +79,9 @@ public class CategoryController {
             System.out.println(imageFile.getSize());
             CategoryDTO savedCategory = categoryService.save(childProfileId, name, imageFile);
             return new ResponseEntity<>(savedCategory, HttpStatus.CREATED);
+        } catch (RejectedExecutionException e) {
+            // Too many uploads are being processed
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
         } catch (RuntimeException | IOException e) {
             System.out.println(e.getMessage());
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -80,14 +89,14 @@ public class CategoryController {
     }
 
     /**
-     * Updates an existing category, optionally with a new image. Requires authentication.
+     * Updates an existing category, optionally with a new image.
      *
      * @param id The ID of the category to update.
      * @param name The new name of the category.
      * @param imageFile An optional new image file for the category.
      * @return The updated category DTO, or HTTP status 404 (Not Found).
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#id, 'Category', 'write')")
     @PutMapping(value = "/{id}", consumes = {"multipart/form-data"})
     public ResponseEntity<CategoryDTO> updateCategory(
             @PathVariable Long id,
@@ -97,18 +106,21 @@ public class CategoryController {
         try {
             CategoryDTO updatedCategory = categoryService.update(id, name, imageFile);
             return new ResponseEntity<>(updatedCategory, HttpStatus.OK);
+        } catch (RejectedExecutionException e) {
+            // Too many uploads are being processed
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
         } catch (RuntimeException | IOException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
     /**
-     * Deletes a category by its ID. Requires authentication.
+     * Deletes a category by its ID.
      *
      * @param id The ID of the category to delete.
      * @return HTTP status 204 (No Content) on successful deletion, or 404 (Not Found).
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#id, 'Category', 'write')")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCategory(@PathVariable Long id) {
         try {
@@ -118,4 +130,39 @@ public class CategoryController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Moves a category within its profile's list.
+     *
+     * @param id The ID of the category to move.
+     * @param move The sibling to place the category after ({@code afterId}), or null to make it first.
+     * @return HTTP status 204 (No Content) on success, or 400 (Bad Request) if the move is invalid.
+     */
+    @PreAuthorize("hasPermission(#id, 'Category', 'write')")
+    @PutMapping("/{id}/position")
+    public ResponseEntity<Void> moveCategory(@PathVariable Long id, @RequestBody MoveDTO move) {
+        try {
+            categoryService.move(id, move.getAfterId());
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Applies several category moves in order, all or nothing.
+     *
+     * @param moves The moves, each with the category {@code id} and the {@code afterId} to place it after.
+     * @return HTTP status 204 (No Content) on success, or 400 (Bad Request) if any move is invalid.
+     */
+    @PreAuthorize("hasPermission(#moves, 'Category', 'write')")
+    @PostMapping("/moves")
+    public ResponseEntity<Void> applyCategoryMoves(@RequestBody List<MoveDTO> moves) {
+        try {
+            categoryService.applyMoves(moves);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+}
@@ -1,34 +1,59 @@
 package com.augmentative.communication.controller;
 
 import com.augmentative.communication.dto.ChildProfileDTO;
+import com.augmentative.communication.dto.PageResponse;
+import com.augmentative.communication.dto.VocabularyMatchDTO;
+import com.augmentative.communication.service.BoardArchiveService;
+import com.augmentative.communication.service.BoardArchiveService.ImportResult;
+import com.augmentative.communication.service.BoardService;
+import com.augmentative.communication.service.BoardReadModel.BoardView;
 import com.augmentative.communication.service.ChildProfileService;
+import com.augmentative.communication.service.VocabularySearchService;
+import com.augmentative.communication.util.PageCursor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
  * REST Controller for ChildProfile-related operations.
  * Handles CRUD operations for child profiles.
+ *
+ * A user can only see and change their own child profiles and boards; requests for another
+ * user's get HTTP status 403 (Forbidden).
  */
 @RestController
 @RequestMapping("/api/profiles")
 public class ChildProfileController {
 
     private final ChildProfileService childProfileService;
+    private final BoardService boardService;
+    private final BoardArchiveService boardArchiveService;
+    private final VocabularySearchService vocabularySearchService;
 
-    public ChildProfileController(ChildProfileService childProfileService) {
+    public ChildProfileController(ChildProfileService childProfileService, BoardService boardService, BoardArchiveService boardArchiveService, VocabularySearchService vocabularySearchService) {
         this.childProfileService = childProfileService;
+        this.boardService = boardService;
+        this.boardArchiveService = boardArchiveService;
+        this.vocabularySearchService = vocabularySearchService;
     }
 
     /**
-     * Retrieves all child profiles for a specific user. Requires authentication.
+     * Retrieves all child profiles for a specific user.
      *
      * @param userId The ID of the user.
      * @return A list of child profile DTOs.
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#userId, 'User', 'read')")
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<ChildProfileDTO>> getChildProfilesByUserId(@PathVariable Long userId) {
         List<ChildProfileDTO> profiles = childProfileService.findByUserId(userId);
@@ -36,12 +61,33 @@ public class ChildProfileController {
     }
 
     /**
-     * Retrieves a specific child profile by its ID. Requires authentication.
+     * Retrieves one page of a user's child profiles, in ID order.
+     *
+     * @param userId The ID of the user.
+     * @param cursor The {@code nextCursor} of the previous page; omitted for the first page.
+     * @param limit The page size, at most 500.
+     * @return The page of child profile DTOs, or HTTP status 400 (Bad Request) if the cursor is invalid.
+     */
+    @PreAuthorize("hasPermission(#userId, 'User', 'read')")
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<PageResponse<ChildProfileDTO>> getChildProfilePageByUserId(
+            @PathVariable Long userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + PageCursor.DEFAULT_PAGE_SIZE) int limit) {
+        try {
+            return new ResponseEntity<>(childProfileService.findPageByUserId(userId, cursor, limit), HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Retrieves a specific child profile by its ID.
      *
      * @param id The ID of the child profile.
      * @return The child profile DTO if found, or HTTP status 404 (Not Found).
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#id, 'ChildProfile', 'read')")
     @GetMapping("/{id}")
     public ResponseEntity<ChildProfileDTO> getChildProfileById(@PathVariable Long id) {
         return childProfileService.findById(id)
@@ -50,13 +96,112 @@ public class ChildProfileController {
     }
 
     /**
-     * Creates a new child profile for a given user. Requires authentication.
+     * Retrieves the complete board of a child profile: all categories with their image+words,
+     * both ordered by orderNumber.
+     * The board is sent as pre-serialized JSON (gzip compressed if the client accepts it)
+     * with its version as the ETag; a matching If-None-Match gets HTTP status 304 (Not Modified).
+     *
+     * @param id The ID of the child profile.
+     * @param ifNoneMatch The ETags the client already has, if any.
+     * @param acceptEncoding The encodings the client accepts, if any.
+     * @return The board snapshot as JSON bytes.
+     */
+    @PreAuthorize("hasPermission(#id, 'ChildProfile', 'read')")
+    @GetMapping("/{id}/board")
+    public ResponseEntity<byte[]> getBoard(@PathVariable Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        BoardView board = boardService.getSerializedBoard(id);
+        if (matchesETag(ifNoneMatch, board.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(board.etag()).build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(board.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(board.gzippedJson());
+        }
+        return response.body(board.json());
+    }
+
+    /**
+     * Searches a child profile's image+words by word, best matches first.
+     * Each term of the query matches the start of a word, ignoring case and diacritics
+     * (e.g. "soo" finds "sööma") and tolerating small typos.
+     *
+     * @param id The ID of the child profile.
+     * @param query The search text.
+     * @param limit The maximum number of results, at most 100.
+     * @return The matching image+words with their category IDs.
+     */
+    @PreAuthorize("hasPermission(#id, 'ChildProfile', 'read')")
+    @GetMapping("/{id}/search")
+    public ResponseEntity<List<VocabularyMatchDTO>> searchVocabulary(
+            @PathVariable Long id,
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "" + VocabularySearchService.DEFAULT_LIMIT) int limit) {
+        return new ResponseEntity<>(vocabularySearchService.search(id, query, limit), HttpStatus.OK);
+    }
+
+    /**
+     * Exports a child profile's board as an Open Board Format archive (.obz).
+     * The archive is streamed to the client while it's written.
+     *
+     * @param id The ID of the child profile.
+     * @return The archive, or HTTP status 404 (Not Found).
+     */
+    @PreAuthorize("hasPermission(#id, 'ChildProfile', 'read')")
+    @GetMapping("/{id}/export")
+    public ResponseEntity<StreamingResponseBody> exportBoard(@PathVariable Long id) {
+        if (!childProfileService.existsById(id)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        StreamingResponseBody archive = out -> boardArchiveService.exportProfile(id, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("profile-" + id + ".obz").build().toString())
+                .body(archive);
+    }
+
+    /**
+     * Imports an Open Board Format archive (.obz), sent as the raw request body, into a child
+     * profile. The archive's boards are added as new categories.
+     *
+     * @param id The ID of the child profile.
+     * @param archive The archive bytes.
+     * @return The number of created categories and image+words with HTTP status 201 (Created),
+     * or HTTP status 400 (Bad Request) if the archive is invalid or the profile doesn't exist.
+     */
+    @PreAuthorize("hasPermission(#id, 'ChildProfile', 'write')")
+    @PostMapping(value = "/{id}/import", consumes = {"application/zip", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<ImportResult> importBoard(@PathVariable Long id, InputStream archive) {
+        Path spooled = null;
+        try {
+            spooled = boardArchiveService.spool(archive);
+            return new ResponseEntity<>(boardArchiveService.importArchive(id, spooled), HttpStatus.CREATED);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Board import failed: " + e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } finally {
+            if (spooled != null) {
+                try {
+                    Files.deleteIfExists(spooled);
+                } catch (IOException e) {
+                    System.err.println("Failed to delete spooled archive " + spooled + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a new child profile for a given user.
      *
      * @param userId The ID of the user to associate the profile with.
      * @param childProfileDTO The child profile DTO to create.
      * @return The created child profile DTO with HTTP status 201 (Created).
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#userId, 'User', 'write')")
     @PostMapping("/user/{userId}")
     public ResponseEntity<ChildProfileDTO> createChildProfile(@PathVariable Long userId, @RequestBody ChildProfileDTO childProfileDTO) {
         try {
@@ -68,13 +213,13 @@ public class ChildProfileController {
     }
 
     /**
-     * Updates an existing child profile. Requires authentication.
+     * Updates an existing child profile.
      *
      * @param id The ID of the child profile to update.
      * @param childProfileDTO The updated child profile DTO.
      * @return The updated child profile DTO, or HTTP status 404 (Not Found).
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#id, 'ChildProfile', 'write')")
     @PutMapping("/{id}")
     public ResponseEntity<ChildProfileDTO> updateChildProfile(@PathVariable Long id, @RequestBody ChildProfileDTO childProfileDTO) {
         try {
@@ -86,12 +231,12 @@ public class ChildProfileController {
     }
 
     /**
-     * Deletes a child profile by its ID. Requires authentication.
+     * Deletes a child profile by its ID.
      *
      * @param id The ID of the child profile to delete.
      * @return HTTP status 204 (No Content) on successful deletion, or 404 (Not Found).
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#id, 'ChildProfile', 'write')")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteChildProfile(@PathVariable Long id) {
         try {
@@ -101,4 +246,20 @@ public class ChildProfileController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
-}
\ No newline at end of file
+
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
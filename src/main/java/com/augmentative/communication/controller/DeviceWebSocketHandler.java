@@ -0,0 +1,379 @@
+package com.augmentative.communication.controller;
+
+import com.augmentative.communication.dto.AudioClipDTO;
+import com.augmentative.communication.dto.AuthenticatedUser;
+import com.augmentative.communication.dto.BoardChangeDTO;
+import com.augmentative.communication.dto.BoardDTO;
+import com.augmentative.communication.dto.BoardUpdateDTO;
+import com.augmentative.communication.dto.CategoryDTO;
+import com.augmentative.communication.dto.DeviceMessage;
+import com.augmentative.communication.dto.DeviceRequest;
+import com.augmentative.communication.dto.ProcessSentenceRequest;
+import com.augmentative.communication.event.BoardChangedEvent;
+import com.augmentative.communication.event.OwnershipChangedEvent;
+import com.augmentative.communication.event.UserChangedEvent;
+import com.augmentative.communication.filter.JwtHandshakeInterceptor;
+import com.augmentative.communication.repository.CategoryRepository;
+import com.augmentative.communication.service.AudioClipStore;
+import com.augmentative.communication.service.Bulkheads;
+import com.augmentative.communication.service.EstntlkService;
+import com.augmentative.communication.service.OwnershipIndex;
+import com.augmentative.communication.service.UserStateCache;
+import com.augmentative.communication.util.BoardDiff;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The WebSocket channel for AAC devices at {@code /ws/device}. A device connects once with its
+ * access token (see {@link JwtHandshakeInterceptor}) and then sends {@link DeviceRequest}s for
+ * boards, conjugation and speech over the same connection; replies are {@link DeviceMessage}s
+ * carrying the request's ID and can arrive in any order.
+ *
+ * Asking for a board also subscribes to it: after each committed edit of the board's
+ * categories or image+words, every subscribed device gets a {@code board-changed} message
+ * with just the changes (see {@link BoardDiff}), so devices don't poll. The last version of
+ * each subscribed board is kept in memory to diff against, shared by all its devices.
+ *
+ * When the access token expires the connection is closed with status 4001; the device
+ * reconnects with a refreshed token and asks for its board again. Revoking the user's tokens
+ * (signing out everywhere, a password change, deleting the user) closes its connections with
+ * 4001 right away, and the device has to sign in again.
+ */
+@Component
+public class DeviceWebSocketHandler extends TextWebSocketHandler {
+
+    static final CloseStatus TOKEN_EXPIRED = new CloseStatus(4001, "Token expired");
+    static final CloseStatus TOKEN_REVOKED = new CloseStatus(4001, "Token revoked");
+    private static final String SUBSCRIPTIONS_ATTRIBUTE = "subscriptions";
+
+    private final ObjectMapper objectMapper;
+    private final CategoryRepository categoryRepository;
+    private final OwnershipIndex ownershipIndex;
+    private final EstntlkService estntlkService;
+    private final Bulkheads bulkheads;
+    private final AudioClipStore audioClipStore;
+    private final UserStateCache userStateCache;
+    private final int sendTimeLimit;
+    private final int sendBufferSizeLimit;
+    // Thread-safe wrappers of the open sessions, by session ID
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    // The same wrappers by the ID of the user they're signed in as, to close them when the user's tokens are revoked
+    private final Map<Long, Set<WebSocketSession>> sessionsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, BoardChannel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * The devices subscribed to one board and the version they have. Guarded by its own monitor.
+     */
+    private static final class BoardChannel {
+        final Set<WebSocketSession> subscribers = ConcurrentHashMap.newKeySet();
+        BoardDTO board;
+        long version;
+        // Set once the last subscriber has left and the channel has been removed
+        boolean closed;
+    }
+
+    public DeviceWebSocketHandler(ObjectMapper objectMapper, CategoryRepository categoryRepository, OwnershipIndex ownershipIndex,
+                                  EstntlkService estntlkService, Bulkheads bulkheads, AudioClipStore audioClipStore,
+                                  UserStateCache userStateCache,
+                                  @Value("${websocket.send-time-limit-ms:10000}") int sendTimeLimit,
+                                  @Value("${websocket.send-buffer-size-limit:1048576}") int sendBufferSizeLimit) {
+        this.objectMapper = objectMapper;
+        this.categoryRepository = categoryRepository;
+        this.ownershipIndex = ownershipIndex;
+        this.estntlkService = estntlkService;
+        this.bulkheads = bulkheads;
+        this.audioClipStore = audioClipStore;
+        this.userStateCache = userStateCache;
+        this.sendTimeLimit = sendTimeLimit;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        session.getAttributes().put(SUBSCRIPTIONS_ATTRIBUTE, ConcurrentHashMap.<Long>newKeySet());
+        // Replies and pushes come from several threads; slow devices are dropped instead of blocking them
+        WebSocketSession device = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimit, sendBufferSizeLimit);
+        sessions.put(session.getId(), device);
+        Long userId = principal(device).id();
+        sessionsByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(device);
+        // Revoked between the handshake and the registration above, so onUserChanged didn't see it
+        Integer tokenVersion = (Integer) device.getAttributes().get(JwtHandshakeInterceptor.TOKEN_VERSION_ATTRIBUTE);
+        if (!userStateCache.isCurrent(userId, tokenVersion)) {
+            close(device, TOKEN_REVOKED);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        WebSocketSession device = sessions.remove(session.getId());
+        if (device != null) {
+            sessionsByUser.computeIfPresent(principal(device).id(), (userId, devices) -> {
+                devices.remove(device);
+                return devices.isEmpty() ? null : devices;
+            });
+            subscriptions(device).forEach(childProfileId -> unsubscribe(device, childProfileId));
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        WebSocketSession device = sessions.get(session.getId());
+        if (device == null || closeIfExpired(device)) {
+            return;
+        }
+        DeviceRequest request;
+        try {
+            request = objectMapper.readValue(message.getPayload(), DeviceRequest.class);
+        } catch (JsonProcessingException e) {
+            send(device, new DeviceMessage(null, "error", HttpStatus.BAD_REQUEST.value(), "Invalid message."));
+            return;
+        }
+        AuthenticatedUser principal = principal(device);
+        String type = request.getType() != null ? request.getType() : "";
+        switch (type) {
+            case "board" -> subscribe(device, principal, request);
+            case "unsubscribe" -> {
+                if (request.getProfileId() != null) {
+                    unsubscribe(device, request.getProfileId());
+                }
+                reply(device, request, HttpStatus.NO_CONTENT, null);
+            }
+            case "conjugate" -> conjugate(device, request);
+            case "speech" -> speak(device, principal, request, request.getText());
+            case "process" -> conjugate(device, request).thenAccept(conjugatedSentence -> {
+                if (conjugatedSentence != null) {
+                    speak(device, principal, request, conjugatedSentence);
+                }
+            });
+            default -> reply(device, request, HttpStatus.BAD_REQUEST, "Unknown message type: " + request.getType());
+        }
+    }
+
+    /**
+     * Pushes the changes of a committed board edit to the devices subscribed to the board.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBoardChanged(BoardChangedEvent event) {
+        BoardChannel channel = channels.get(event.childProfileId());
+        if (channel == null) {
+            return;
+        }
+        synchronized (channel) {
+            if (channel.closed) {
+                return;
+            }
+            BoardDTO board = loadBoard(event.childProfileId());
+            List<BoardChangeDTO> changes = BoardDiff.between(channel.board, board);
+            if (changes.isEmpty()) {
+                return;
+            }
+            channel.board = board;
+            channel.version++;
+            TextMessage message = serialize(new DeviceMessage(null, "board-changed", HttpStatus.OK.value(),
+                    new BoardUpdateDTO(event.childProfileId(), channel.version, null, changes)));
+            for (WebSocketSession device : channel.subscribers) {
+                if (!closeIfExpired(device)) {
+                    send(device, message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the channel of a deleted profile; its devices got the removal of all categories already.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOwnershipChanged(OwnershipChangedEvent event) {
+        if (event.type() == OwnershipChangedEvent.Type.CHILD_PROFILE && event.parentId() == null) {
+            BoardChannel channel = channels.get(event.id());
+            if (channel != null) {
+                channel.subscribers.forEach(device -> unsubscribe(device, event.id()));
+            }
+        }
+    }
+
+    /**
+     * Closes the connections of a user whose tokens were revoked or who was deleted. Runs after
+     * {@link UserStateCache} forgot the user's token version, so a connection registered
+     * concurrently finds the token revoked itself.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onUserChanged(UserChangedEvent event) {
+        Set<WebSocketSession> devices = sessionsByUser.get(event.userId());
+        if (devices != null) {
+            devices.forEach(device -> close(device, TOKEN_REVOKED));
+        }
+    }
+
+    private void subscribe(WebSocketSession device, AuthenticatedUser principal, DeviceRequest request) {
+        Long childProfileId = request.getProfileId();
+        if (childProfileId == null || !ownershipIndex.isOwner(principal.id(), OwnershipChangedEvent.Type.CHILD_PROFILE, childProfileId)) {
+            reply(device, request, HttpStatus.FORBIDDEN, null);
+            return;
+        }
+        while (true) {
+            BoardChannel channel = channels.computeIfAbsent(childProfileId, id -> new BoardChannel());
+            synchronized (channel) {
+                if (channel.closed) {
+                    // Removed by the last unsubscribe in the meantime; use a new one
+                    continue;
+                }
+                if (channel.board == null) {
+                    channel.board = loadBoard(childProfileId);
+                }
+                // Sent and added under the monitor, so no change can come before the board
+                reply(device, request, HttpStatus.OK, new BoardUpdateDTO(childProfileId, channel.version, channel.board, null));
+                channel.subscribers.add(device);
+                subscriptions(device).add(childProfileId);
+                return;
+            }
+        }
+    }
+
+    private void unsubscribe(WebSocketSession device, Long childProfileId) {
+        subscriptions(device).remove(childProfileId);
+        BoardChannel channel = channels.get(childProfileId);
+        if (channel == null) {
+            return;
+        }
+        synchronized (channel) {
+            channel.subscribers.remove(device);
+            if (channel.subscribers.isEmpty() && !channel.closed) {
+                channel.closed = true;
+                channels.remove(childProfileId, channel);
+            }
+        }
+    }
+
+    /**
+     * Runs the estnltk script in its bulkhead and replies with the conjugated image+words.
+     *
+     * @return The conjugated sentence, or null if it failed (the device got an error reply).
+     */
+    private CompletableFuture<String> conjugate(WebSocketSession device, DeviceRequest request) {
+        if (request.getSentence() == null) {
+            reply(device, request, HttpStatus.BAD_REQUEST, "sentence is required.");
+            return CompletableFuture.completedFuture(null);
+        }
+        ProcessSentenceRequest sentence = new ProcessSentenceRequest();
+        sentence.setSentence(request.getSentence());
+        try {
+            return bulkheads.morphology().submit(() -> estntlkService.processSentence(sentence))
+                    .handle((processedSentence, failure) -> {
+                        if (failure != null) {
+                            reply(device, request, TextProcessingController.statusOf(failure), null);
+                            return null;
+                        }
+                        String conjugatedSentence = TextProcessingController.applyConjugations(sentence, processedSentence);
+                        reply(device, request, "conjugate", HttpStatus.OK, sentence.getSentence());
+                        return conjugatedSentence;
+                    });
+        } catch (RejectedExecutionException e) {
+            reply(device, request, HttpStatus.SERVICE_UNAVAILABLE, null);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Synthesizes speech in its bulkhead and replies with a handle to fetch it.
+     */
+    private void speak(WebSocketSession device, AuthenticatedUser principal, DeviceRequest request, String text) {
+        if (text == null) {
+            reply(device, request, HttpStatus.BAD_REQUEST, "text is required.");
+            return;
+        }
+        try {
+            bulkheads.textToSpeech().submit(() -> estntlkService.textToSpeech(text, "mari", 1))
+                    .whenComplete((audioBytes, failure) -> {
+                        if (failure != null) {
+                            reply(device, request, "speech", TextProcessingController.statusOf(failure), null);
+                            return;
+                        }
+                        String handle = audioClipStore.put(principal.id(), audioBytes);
+                        reply(device, request, "speech", HttpStatus.OK, new AudioClipDTO(handle, "/api/text/audio/" + handle));
+                    });
+        } catch (RejectedExecutionException e) {
+            reply(device, request, "speech", HttpStatus.SERVICE_UNAVAILABLE, null);
+        }
+    }
+
+    private BoardDTO loadBoard(Long childProfileId) {
+        return new BoardDTO(childProfileId, CategoryDTO.fromBoardRows(categoryRepository.findBoardRows(childProfileId)));
+    }
+
+    private boolean closeIfExpired(WebSocketSession device) {
+        Instant expiresAt = (Instant) device.getAttributes().get(JwtHandshakeInterceptor.EXPIRES_AT_ATTRIBUTE);
+        if (expiresAt == null || Instant.now().isBefore(expiresAt)) {
+            return false;
+        }
+        close(device, TOKEN_EXPIRED);
+        return true;
+    }
+
+    private void close(WebSocketSession device, CloseStatus status) {
+        try {
+            device.close(status);
+        } catch (IOException e) {
+            System.out.println("Could not close WebSocket session " + device.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private void reply(WebSocketSession device, DeviceRequest request, HttpStatus status, Object data) {
+        reply(device, request, request.getType(), status, data);
+    }
+
+    private void reply(WebSocketSession device, DeviceRequest request, String type, HttpStatus status, Object data) {
+        send(device, new DeviceMessage(request.getId(), type, status.value(), data));
+    }
+
+    private void send(WebSocketSession device, DeviceMessage message) {
+        send(device, serialize(message));
+    }
+
+    private void send(WebSocketSession device, TextMessage message) {
+        try {
+            device.sendMessage(message);
+        } catch (IOException | IllegalStateException e) {
+            // Closed, or too slow to keep up; the session is cleaned up when it closes
+            System.out.println("Could not send to WebSocket session " + device.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private TextMessage serialize(DeviceMessage message) {
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize a " + message.getType() + " message", e);
+        }
+    }
+
+    private static AuthenticatedUser principal(WebSocketSession device) {
+        return (AuthenticatedUser) device.getAttributes().get(JwtHandshakeInterceptor.PRINCIPAL_ATTRIBUTE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<Long> subscriptions(WebSocketSession device) {
+        return (Set<Long>) device.getAttributes().get(SUBSCRIPTIONS_ATTRIBUTE);
+    }
+}
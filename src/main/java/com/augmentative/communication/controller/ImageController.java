@@ -1,58 +1,91 @@
 package com.augmentative.communication.controller;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.augmentative.communication.service.ImageStorageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
-import java.net.MalformedURLException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.IOException;
+import java.util.Optional;
 
 /**
  * REST Controller for serving uploaded images.
- * This controller retrieves images from the local storage directory.
- * In a production environment with a NoSQL database, this controller
- * would be replaced with logic to retrieve the image data from the database.
+ * This controller retrieves images through the configured image store
+ * (one file per image, or packed segment files).
+ *
+ * Stored images never change (each upload gets a new filename), so the filename serves as
+ * the ETag and a client revalidating its cached copy gets HTTP status 304 (Not Modified).
+ * Metrics: {@code images.served} (bytes per image sent) and {@code images.not-modified}
+ * (requests answered from the client's cache).
  */
 @RestController
 @RequestMapping("/api/images")
 public class ImageController {
 
-    @Value("${file.upload-dir}")
-    private String uploadDir;
+    private final ImageStorageService imageStorageService;
+    private final DistributionSummary servedBytes;
+    private final Counter notModified;
+
+    public ImageController(ImageStorageService imageStorageService, MeterRegistry meterRegistry) {
+        this.imageStorageService = imageStorageService;
+        this.servedBytes = DistributionSummary.builder("images.served").baseUnit("bytes")
+                .description("Size of the images sent").register(meterRegistry);
+        this.notModified = Counter.builder("images.not-modified")
+                .description("Image requests answered from the client's cache").register(meterRegistry);
+    }
 
     @GetMapping("/{filename:.+}")
-    public ResponseEntity<Resource> serveImage(@PathVariable String filename) {
+    public ResponseEntity<Resource> serveImage(@PathVariable String filename, WebRequest request) {
+        String etag = "\"" + filename + "\"";
+        if (request.checkNotModified(etag)) {
+            notModified.increment();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         try {
-            Path file = Paths.get(uploadDir).resolve(filename);
-            Resource resource = new UrlResource(file.toUri());
-
-            if (resource.exists() || resource.isReadable()) {
-                // Determine content type (e.g., image/jpeg) based on file extension
-                String contentType = "application/octet-stream";
-                if (filename.toLowerCase().endsWith(".jpg") || filename.toLowerCase().endsWith(".jpeg")) {
-                    contentType = MediaType.IMAGE_JPEG_VALUE;
-                } else if (filename.toLowerCase().endsWith(".png")) {
-                    contentType = MediaType.IMAGE_PNG_VALUE;
-                } else if (filename.toLowerCase().endsWith(".gif")) {
-                    contentType = MediaType.IMAGE_GIF_VALUE;
-                }
+            Optional<Resource> image = imageStorageService.loadImage(filename);
+
+            if (image.isPresent()) {
+                Resource resource = image.get();
+                String contentType = contentTypeOf(filename);
 
+                servedBytes.record(resource.contentLength());
                 return ResponseEntity.ok()
                         .header(HttpHeaders.CONTENT_TYPE, contentType)
+                        .eTag(etag)
                         .body(resource);
             } else {
                 return ResponseEntity.notFound().build();
             }
-        } catch (MalformedURLException e) {
-            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            System.err.println("Failed to read image " + filename + ": " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Determines the content type (e.g., image/jpeg) based on the file extension.
+     */
+    static String contentTypeOf(String filename) {
+        String lowerCaseName = filename.toLowerCase();
+        if (lowerCaseName.endsWith(".jpg") || lowerCaseName.endsWith(".jpeg")) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        } else if (lowerCaseName.endsWith(".png")) {
+            return MediaType.IMAGE_PNG_VALUE;
+        } else if (lowerCaseName.endsWith(".gif")) {
+            return MediaType.IMAGE_GIF_VALUE;
+        } else if (lowerCaseName.endsWith(".webp")) {
+            return "image/webp";
         }
+        return "application/octet-stream";
     }
 }
\ No newline at end of file
@@ -1,7 +1,11 @@
 package com.augmentative.communication.controller;
 
 import com.augmentative.communication.dto.ImageWordDTO;
+import com.augmentative.communication.dto.MoveDTO;
+import com.augmentative.communication.dto.PageResponse;
 import com.augmentative.communication.service.ImageWordService;
+import com.augmentative.communication.util.PageCursor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -10,10 +14,14 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * REST Controller for ImageWord-related operations.
  * Handles CRUD operations for image+words within categories.
+ *
+ * Image+words belong to the user who owns their category's child profile. Requests for
+ * anyone else's image+words or categories get HTTP status 403 (Forbidden).
  */
 @RestController
 @RequestMapping("/api/imagewords")
@@ -26,12 +34,12 @@ public class ImageWordController {
     }
 
     /**
-     * Retrieves all image+words for a specific category, ordered by orderNumber. Requires authentication.
+     * Retrieves all image+words for a specific category, ordered by orderNumber.
      *
      * @param categoryId The ID of the category.
      * @return A list of image+word DTOs.
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#categoryId, 'Category', 'read')")
     @GetMapping("/category/{categoryId}")
     public ResponseEntity<List<ImageWordDTO>> getImageWordsByCategoryId(@PathVariable Long categoryId) {
         List<ImageWordDTO> imageWords = imageWordService.findByCategoryId(categoryId);
@@ -39,12 +47,33 @@ public class ImageWordController {
     }
 
     /**
-     * Retrieves a specific image+word by its ID. Requires authentication.
+     * Retrieves one page of a category's image+words, ordered by orderNumber.
+     *
+     * @param categoryId The ID of the category.
+     * @param cursor The {@code nextCursor} of the previous page; omitted for the first page.
+     * @param limit The page size, at most 500.
+     * @return The page of image+word DTOs, or HTTP status 400 (Bad Request) if the cursor is invalid.
+     */
+    @PreAuthorize("hasPermission(#categoryId, 'Category', 'read')")
+    @GetMapping("/category/{categoryId}/page")
+    public ResponseEntity<PageResponse<ImageWordDTO>> getImageWordPageByCategoryId(
+            @PathVariable Long categoryId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + PageCursor.DEFAULT_PAGE_SIZE) int limit) {
+        try {
+            return new ResponseEntity<>(imageWordService.findPageByCategoryId(categoryId, cursor, limit), HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Retrieves a specific image+word by its ID.
      *
      * @param id The ID of the image+word.
      * @return The image+word DTO if found, or HTTP status 404 (Not Found).
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#id, 'ImageWord', 'read')")
     @GetMapping("/{id}")
     public ResponseEntity<ImageWordDTO> getImageWordById(@PathVariable Long id) {
         return imageWordService.findById(id)
@@ -53,14 +82,14 @@ public class ImageWordController {
     }
 
     /**
-     * Creates a new image+word for a given category with a file upload. Requires authentication.
+     * Creates a new image+word for a given category with a file upload.
      *
      * @param categoryId The ID of the category to associate the image+word with.
      * @param wordText The word associated with the image.
      * @param imageFile The image file for the image+word.
      * @return The created image+word DTO with HTTP status 201 (Created).
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#categoryId, 'Category', 'write')")
     @PostMapping(value = "/category/{categoryId}", consumes = {"multipart/form-data"})
     public ResponseEntity<ImageWordDTO> createImageWord(
             @PathVariable Long categoryId,
@@ -70,20 +99,23 @@ public class ImageWordController {
         try {
             ImageWordDTO savedImageWord = imageWordService.save(categoryId, wordText, imageFile);
             return new ResponseEntity<>(savedImageWord, HttpStatus.CREATED);
+        } catch (RejectedExecutionException e) {
+            // Too many uploads are being processed
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
         } catch (RuntimeException | IOException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
     }
 
     /**
-     * Updates an existing image+word, optionally with a new image. Requires authentication.
+     * Updates an existing image+word, optionally with a new image.
      *
      * @param id The ID of the image+word to update.
      * @param wordText The new word for the image+word.
      * @param imageFile An optional new image file for the image+word.
      * @return The updated image+word DTO, or HTTP status 404 (Not Found).
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#id, 'ImageWord', 'write')")
     @PutMapping(value = "/{id}", consumes = {"multipart/form-data"})
     public ResponseEntity<ImageWordDTO> updateImageWord(
             @PathVariable Long id,
@@ -93,18 +125,21 @@ public class ImageWordController {
         try {
             ImageWordDTO updatedImageWord = imageWordService.update(id, wordText, imageFile);
             return new ResponseEntity<>(updatedImageWord, HttpStatus.OK);
+        } catch (RejectedExecutionException e) {
+            // Too many uploads are being processed
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
         } catch (RuntimeException | IOException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
     /**
-     * Deletes an image+word by its ID. Requires authentication.
+     * Deletes an image+word by its ID.
      *
      * @param id The ID of the image+word to delete.
      * @return HTTP status 204 (No Content) on successful deletion, or 404 (Not Found).
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#id, 'ImageWord', 'write')")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteImageWord(@PathVariable Long id) {
         try {
@@ -114,4 +149,39 @@ public class ImageWordController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Moves an image+word within its category.
+     *
+     * @param id The ID of the image+word to move.
+     * @param move The sibling to place the image+word after ({@code afterId}), or null to make it first.
+     * @return HTTP status 204 (No Content) on success, or 400 (Bad Request) if the move is invalid.
+     */
+    @PreAuthorize("hasPermission(#id, 'ImageWord', 'write')")
+    @PutMapping("/{id}/position")
+    public ResponseEntity<Void> moveImageWord(@PathVariable Long id, @RequestBody MoveDTO move) {
+        try {
+            imageWordService.move(id, move.getAfterId());
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Applies several image+word moves in order, all or nothing.
+     *
+     * @param moves The moves, each with the image+word {@code id} and the {@code afterId} to place it after.
+     * @return HTTP status 204 (No Content) on success, or 400 (Bad Request) if any move is invalid.
+     */
+    @PreAuthorize("hasPermission(#moves, 'ImageWord', 'write')")
+    @PostMapping("/moves")
+    public ResponseEntity<Void> applyImageWordMoves(@RequestBody List<MoveDTO> moves) {
+        try {
+            imageWordService.applyMoves(moves);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+}
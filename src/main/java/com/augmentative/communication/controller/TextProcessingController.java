@@ -1,35 +1,67 @@
 package com.augmentative.communication.controller;
 
+import com.augmentative.communication.dto.AudioClipDTO;
+import com.augmentative.communication.dto.AuthenticatedUser;
 import com.augmentative.communication.dto.ImageWordDTO;
 import com.augmentative.communication.dto.ProcessAudioRequest;
 import com.augmentative.communication.dto.ProcessSentenceRequest;
 import com.augmentative.communication.dto.ProcessSentenceResponse;
+import com.augmentative.communication.dto.StreamErrorDTO;
+import com.augmentative.communication.service.AudioClipStore;
+import com.augmentative.communication.service.Bulkheads;
 import com.augmentative.communication.service.EstntlkService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * REST Controller for text processing operations, specifically for estntlk integration.
+ *
+ * The estnltk script and the speech API run in their own {@link Bulkheads}, and the endpoints
+ * return as soon as the work is started, so a slow dependency doesn't hold request threads.
+ * When a bulkhead is full the response is HTTP status 503 (Service Unavailable) with a
+ * Retry-After header; when the work takes too long it's 504 (Gateway Timeout).
  */
 @RestController
 @RequestMapping("/api/text")
 public class TextProcessingController {
 
+    private static final MediaType AUDIO_WAV = MediaType.parseMediaType("audio/wav");
+
     private final EstntlkService estntlkService;
+    private final Bulkheads bulkheads;
+    private final AudioClipStore audioClipStore;
+    private final Duration streamTimeout;
 
-    public TextProcessingController(EstntlkService estntlkService) {
+    public TextProcessingController(EstntlkService estntlkService, Bulkheads bulkheads, AudioClipStore audioClipStore,
+                                    @Value("${text.stream.timeout:2m}") Duration streamTimeout) {
         this.estntlkService = estntlkService;
+        this.bulkheads = bulkheads;
+        this.audioClipStore = audioClipStore;
+        this.streamTimeout = streamTimeout;
     }
 
     /**
@@ -41,61 +73,159 @@ public class TextProcessingController {
      */
     @PreAuthorize("isAuthenticated()")
     @PostMapping("/process")
-    public ProcessSentenceResponse processSentence(@RequestBody ProcessSentenceRequest request) {
-        String processedSentence = estntlkService.processSentence(request);
-
-        processedSentence = processedSentence.replace("'", "");
-        var newWords = new ArrayList<String>(Arrays.asList(processedSentence.split(",")));
-        System.out.println(newWords);
+    public CompletableFuture<ResponseEntity<ProcessSentenceResponse>> processSentence(@RequestBody ProcessSentenceRequest request) {
+        return respond(() -> bulkheads.morphology().submit(() -> estntlkService.processSentence(request))
+                .thenCompose(processedSentence -> {
+                    String conjugatedSentence = applyConjugations(request, processedSentence);
+                    return bulkheads.textToSpeech().submit(() -> estntlkService.textToSpeech(conjugatedSentence, "mari", 1));
+                })
+                .thenApply(audioBytes -> new ProcessSentenceResponse(
+                        request.getSentence(),
+                        Base64.getEncoder().encodeToString(audioBytes)
+                )));
+    }
 
-        for (int i = 0; i < newWords.size(); i++) {
-            String cleanWord = newWords.get(i).strip();
-            request.getSentence().get(i).setConjugatedWord(cleanWord);
-        }
+    /**
+     * Streaming variant of {@link #processSentence}: returns a Server-Sent Events stream right
+     * away, so the tablet can show the conjugated sentence before the speech is synthesized.
+     * Events, each with JSON data:
+     * <ul>
+     *     <li>{@code sentence}: the image+words with their conjugated forms.</li>
+     *     <li>{@code audio}: an {@link AudioClipDTO} whose URL serves the speech as WAV.</li>
+     *     <li>{@code error}: a {@link StreamErrorDTO}, instead of the remaining events.</li>
+     * </ul>
+     * The stream ends after {@code audio} or {@code error}. Requires authentication.
+     *
+     * @param request The sentence to process.
+     * @return The event stream, or HTTP status 503 (Service Unavailable) if the estnltk bulkhead is full.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @PostMapping(value = "/process/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> processSentenceStream(@RequestBody ProcessSentenceRequest request,
+                                                            @AuthenticationPrincipal AuthenticatedUser principal) {
+        CompletableFuture<String> processedSentence;
         try {
-            var audioBytes = estntlkService.textToSpeech(processedSentence, "mari", 1);
-            String audioBase64 = Base64.getEncoder().encodeToString(audioBytes);
-
-            return new ProcessSentenceResponse(
-                    request.getSentence(),
-                    audioBase64
-            );
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            processedSentence = bulkheads.morphology().submit(() -> estntlkService.processSentence(request));
+        } catch (RejectedExecutionException e) {
+            return busy();
         }
+
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        processedSentence
+                .thenCompose(processed -> {
+                    String conjugatedSentence = applyConjugations(request, processed);
+                    send(emitter, "sentence", request.getSentence());
+                    return bulkheads.textToSpeech().submit(() -> estntlkService.textToSpeech(conjugatedSentence, "mari", 1));
+                })
+                .whenComplete((audioBytes, failure) -> {
+                    if (failure == null) {
+                        String handle = audioClipStore.put(principal.id(), audioBytes);
+                        send(emitter, "audio", new AudioClipDTO(handle, "/api/text/audio/" + handle));
+                    } else {
+                        HttpStatus status = statusOf(failure);
+                        send(emitter, "error", new StreamErrorDTO(status.value(), status.getReasonPhrase()));
+                    }
+                    emitter.complete();
+                });
+        return new ResponseEntity<>(emitter, HttpStatus.OK);
+    }
+
+    /**
+     * Serves speech announced by {@link #processSentenceStream}. Only the user it was made for can fetch it.
+     *
+     * @param handle The handle from the {@code audio} event.
+     * @return The WAV audio, or HTTP status 404 (Not Found) if it has expired.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/audio/{handle}")
+    public ResponseEntity<byte[]> getAudioClip(@PathVariable String handle, @AuthenticationPrincipal AuthenticatedUser principal) {
+        return audioClipStore.get(principal.id(), handle)
+                .map(audio -> ResponseEntity.ok().contentType(AUDIO_WAV).body(audio))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @PreAuthorize("isAuthenticated()")
     @PostMapping("/conjugate")
-    public List<ImageWordDTO> conjugateSentence(@RequestBody ProcessSentenceRequest request) {
-        String processedSentence = estntlkService.processSentence(request);
+    public CompletableFuture<ResponseEntity<List<ImageWordDTO>>> conjugateSentence(@RequestBody ProcessSentenceRequest request) {
+        return respond(() -> bulkheads.morphology().submit(() -> estntlkService.processSentence(request))
+                .thenApply(processedSentence -> {
+                    applyConjugations(request, processedSentence);
+                    return request.getSentence();
+                }));
+    }
 
+    @PreAuthorize("isAuthenticated()")
+    @PostMapping("/audio")
+    public CompletableFuture<ResponseEntity<String>> processAudio(@RequestBody ProcessAudioRequest request) {
+        String text = String.join(", ", request.getSentence());
+        return respond(() -> bulkheads.textToSpeech().submit(() -> estntlkService.textToSpeech(text, "mari", 1))
+                .thenApply(audioBytes -> Base64.getEncoder().encodeToString(audioBytes)));
+    }
+
+    /**
+     * Sets the conjugated form of each word from the script's output.
+     *
+     * @return The conjugated sentence, for speech.
+     */
+    static String applyConjugations(ProcessSentenceRequest request, String processedSentence) {
         processedSentence = processedSentence.replace("'", "");
         var newWords = new ArrayList<String>(Arrays.asList(processedSentence.split(",")));
-        System.out.println(newWords);
 
         for (int i = 0; i < newWords.size(); i++) {
             String cleanWord = newWords.get(i).strip();
             request.getSentence().get(i).setConjugatedWord(cleanWord);
         }
-        return request.getSentence();
+        return processedSentence;
     }
 
-    @PreAuthorize("isAuthenticated()")
-    @PostMapping("/audio")
-    public ResponseEntity<String> processAudio(@RequestBody ProcessAudioRequest request) {
+    /**
+     * Turns the result of work started in a bulkhead into a response.
+     */
+    private static <T> CompletableFuture<ResponseEntity<T>> respond(Supplier<CompletableFuture<T>> work) {
+        CompletableFuture<T> result;
+        try {
+            result = work.get();
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(busy());
+        }
+        return result.handle((body, failure) -> {
+            if (failure == null) {
+                return new ResponseEntity<>(body, HttpStatus.OK);
+            }
+            HttpStatus status = statusOf(failure);
+            return status == HttpStatus.SERVICE_UNAVAILABLE ? busy() : new ResponseEntity<>(status);
+        });
+    }
 
+    /**
+     * Maps a failure of work started in a bulkhead to the status reported to the client.
+     */
+    static HttpStatus statusOf(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof RejectedExecutionException) {
+            // The speech bulkhead was full after the sentence was processed
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
+        if (cause instanceof TimeoutException) {
+            System.err.println("Text processing timed out.");
+            return HttpStatus.GATEWAY_TIMEOUT;
+        }
+        System.err.println("Text processing failed: " + cause.getMessage());
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    /**
+     * Sends one event; if the client has gone away the event is dropped.
+     */
+    private static void send(SseEmitter emitter, String name, Object data) {
         try {
-            var audioBytes = estntlkService.textToSpeech(String.join(", ", request.getSentence()), "mari", 1);
-            String audioBase64 = Base64.getEncoder().encodeToString(audioBytes);
-
-            return new ResponseEntity<>(audioBase64, HttpStatus.OK);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            System.out.println("Could not send the " + name + " event: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private static <T> ResponseEntity<T> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+}
@@ -1,22 +1,20 @@
 package com.augmentative.communication.controller;
 
+import com.augmentative.communication.dto.AuthenticatedUser;
 import com.augmentative.communication.dto.LoginRequest;
 import com.augmentative.communication.dto.LoginResponse;
+import com.augmentative.communication.dto.RefreshRequest;
 import com.augmentative.communication.dto.UserDTO;
-import com.augmentative.communication.model.User;
 import com.augmentative.communication.service.UserService;
-import com.augmentative.communication.util.JwtUtil;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.RejectedExecutionException;
+
 
 /**
  * REST Controller for User-related operations.
@@ -27,15 +25,9 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
 
     private final UserService userService;
-    private final AuthenticationManager authenticationManager;
-    private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService;
 
-    public UserController(UserService userService, AuthenticationManager authenticationManager, JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public UserController(UserService userService) {
         this.userService = userService;
-        this.authenticationManager = authenticationManager;
-        this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
     }
 
     /**
@@ -47,41 +39,30 @@ public class UserController {
      */
     @PostMapping("/register")
     public ResponseEntity<UserDTO> registerUser(@RequestBody UserDTO userDTO) {
-        UserDTO savedUser = userService.save(userDTO);
-        return new ResponseEntity<>(savedUser, HttpStatus.CREATED);
+        try {
+            UserDTO savedUser = userService.save(userDTO);
+            return new ResponseEntity<>(savedUser, HttpStatus.CREATED);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
     }
 
     /**
      * Authenticates a user and returns a JWT token upon successful login.
      *
      * @param loginRequest The login request containing username and password.
-     * @return A LoginResponse containing the JWT token and user ID.
+     * @return A LoginResponse containing the JWT token and user ID, HTTP status 401 (Unauthorized)
+     * if the credentials are wrong, or 503 (Service Unavailable) if too many logins are being processed.
      */
     @PostMapping("/login")
     public ResponseEntity<LoginResponse> loginUser(@RequestBody LoginRequest loginRequest) {
         try {
-            // Authenticate the user using Spring Security's AuthenticationManager
-            Authentication authenticate = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword())
-            );
-
-            // Explicitly set the authentication in the SecurityContextHolder
-            // This ensures that subsequent method calls requiring authentication are authorized.
-            SecurityContextHolder.getContext().setAuthentication(authenticate);
-
-            // If authentication is successful, generate a JWT token
-            final UserDetails userDetails = userDetailsService.loadUserByUsername(loginRequest.getUsername());
-            final String token = jwtUtil.generateToken(userDetails.getUsername());
-
-            // Retrieve the User entity to get the ID
-            User user = userService.findByUsername(loginRequest.getUsername())
-                    .orElseThrow(() -> new RuntimeException("User not found after authentication."));
-
-            // Seed initial profile if none exist for this user
-            userService.seedInitialChildProfile(user.getId());
-
-            return ResponseEntity.ok(new LoginResponse(token, user.getId()));
-
+            return userService.login(loginRequest.getUsername(), loginRequest.getPassword())
+                    .map(ResponseEntity::ok)
+                    .orElse(new ResponseEntity<>(HttpStatus.UNAUTHORIZED));
+        } catch (RejectedExecutionException e) {
+            // Too many logins at once; the password check wasn't even attempted
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
         } catch (Exception e) {
             // Return unauthorized status if authentication fails
             return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
@@ -89,12 +70,61 @@ public class UserController {
     }
 
     /**
-     * Retrieves a user by their ID. Requires authentication.
+     * Exchanges a refresh token for a new access token and a new refresh token.
+     * The presented refresh token can't be used again.
+     *
+     * @param refreshRequest The request containing the refresh token.
+     * @return A LoginResponse with the new tokens, or HTTP status 401 (Unauthorized) if the refresh token isn't valid.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponse> refreshToken(@RequestBody RefreshRequest refreshRequest) {
+        if (refreshRequest.getRefreshToken() == null) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+        return userService.refresh(refreshRequest.getRefreshToken())
+                .map(ResponseEntity::ok)
+                .orElse(new ResponseEntity<>(HttpStatus.UNAUTHORIZED));
+    }
+
+    /**
+     * Signs out the device holding a refresh token by revoking it.
+     *
+     * @param refreshRequest The request containing the refresh token.
+     * @return HTTP status 204 (No Content), also if the token was already revoked.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody RefreshRequest refreshRequest) {
+        if (refreshRequest.getRefreshToken() != null) {
+            userService.logout(refreshRequest.getRefreshToken());
+        }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * Signs the current user out of every device by revoking all access and refresh tokens
+     * issued to them so far, including the one used for this request. Requires authentication.
+     *
+     * @param principal The signed in user.
+     * @return HTTP status 204 (No Content), or 404 (Not Found) if the user no longer exists.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @PostMapping("/logout-all")
+    public ResponseEntity<Void> logoutEverywhere(@AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            userService.revokeTokens(principal.id());
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Retrieves a user by their ID. Users may only retrieve themselves.
      *
      * @param id The ID of the user.
      * @return The user DTO if found, or HTTP status 404 (Not Found).
      */
-    @PreAuthorize("isAuthenticated()")
+    @PreAuthorize("hasPermission(#id, 'User', 'read')")
     @GetMapping("/{id}")
     public ResponseEntity<UserDTO> getUserById(@PathVariable Long id) {
         return userService.findById(id)
@@ -0,0 +1,34 @@
+package com.augmentative.communication.dto;
+
+/**
+ * Points to synthesized speech that can be fetched once it's ready, instead of sending the
+ * audio inline as Base64.
+ */
+public class AudioClipDTO {
+    private String handle;
+    private String url;
+
+    public AudioClipDTO() {
+    }
+
+    public AudioClipDTO(String handle, String url) {
+        this.handle = handle;
+        this.url = url;
+    }
+
+    public String getHandle() {
+        return handle;
+    }
+
+    public void setHandle(String handle) {
+        this.handle = handle;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+}
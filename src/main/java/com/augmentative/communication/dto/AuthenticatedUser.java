@@ -0,0 +1,15 @@
+package com.augmentative.communication.dto;
+
+/**
+ * The security principal of a request authenticated with a JWT, built from the token's claims.
+ *
+ * @param id The user's ID.
+ * @param username The user's username.
+ */
+public record AuthenticatedUser(Long id, String username) {
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
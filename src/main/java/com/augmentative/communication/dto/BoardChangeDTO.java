@@ -0,0 +1,121 @@
+package com.augmentative.communication.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * One change to a board, as pushed to devices. The operations:
+ * <ul>
+ *     <li>{@code category}: {@code category} was added or renamed, or its picture changed (without its items).</li>
+ *     <li>{@code category-removed}: the category {@code id} was deleted with its image+words.</li>
+ *     <li>{@code category-order}: the category IDs in their new {@code order}.</li>
+ *     <li>{@code imageword}: {@code imageWord} was added or edited.</li>
+ *     <li>{@code imageword-removed}: the image+word {@code id} was deleted from category {@code categoryId}.</li>
+ *     <li>{@code imageword-order}: the image+word IDs of category {@code categoryId} in their new {@code order}.</li>
+ * </ul>
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BoardChangeDTO {
+    private String op;
+    private Long id;
+    private Long categoryId;
+    private CategoryDTO category;
+    private ImageWordDTO imageWord;
+    private List<Long> order;
+
+    public BoardChangeDTO() {
+    }
+
+    public static BoardChangeDTO category(CategoryDTO category) {
+        BoardChangeDTO change = new BoardChangeDTO();
+        change.op = "category";
+        change.category = category;
+        return change;
+    }
+
+    public static BoardChangeDTO categoryRemoved(Long id) {
+        BoardChangeDTO change = new BoardChangeDTO();
+        change.op = "category-removed";
+        change.id = id;
+        return change;
+    }
+
+    public static BoardChangeDTO categoryOrder(List<Long> order) {
+        BoardChangeDTO change = new BoardChangeDTO();
+        change.op = "category-order";
+        change.order = order;
+        return change;
+    }
+
+    public static BoardChangeDTO imageWord(ImageWordDTO imageWord) {
+        BoardChangeDTO change = new BoardChangeDTO();
+        change.op = "imageword";
+        change.imageWord = imageWord;
+        return change;
+    }
+
+    public static BoardChangeDTO imageWordRemoved(Long id, Long categoryId) {
+        BoardChangeDTO change = new BoardChangeDTO();
+        change.op = "imageword-removed";
+        change.id = id;
+        change.categoryId = categoryId;
+        return change;
+    }
+
+    public static BoardChangeDTO imageWordOrder(Long categoryId, List<Long> order) {
+        BoardChangeDTO change = new BoardChangeDTO();
+        change.op = "imageword-order";
+        change.categoryId = categoryId;
+        change.order = order;
+        return change;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public CategoryDTO getCategory() {
+        return category;
+    }
+
+    public void setCategory(CategoryDTO category) {
+        this.category = category;
+    }
+
+    public ImageWordDTO getImageWord() {
+        return imageWord;
+    }
+
+    public void setImageWord(ImageWordDTO imageWord) {
+        this.imageWord = imageWord;
+    }
+
+    public List<Long> getOrder() {
+        return order;
+    }
+
+    public void setOrder(List<Long> order) {
+        this.order = order;
+    }
+}
@@ -0,0 +1,32 @@
+package com.augmentative.communication.dto;
+
+import java.util.List;
+
+public class BoardDTO {
+    private Long childProfileId;
+    private List<CategoryDTO> categories;
+
+    public BoardDTO() {
+    }
+
+    public BoardDTO(Long childProfileId, List<CategoryDTO> categories) {
+        this.childProfileId = childProfileId;
+        this.categories = categories;
+    }
+
+    public Long getChildProfileId() {
+        return childProfileId;
+    }
+
+    public void setChildProfileId(Long childProfileId) {
+        this.childProfileId = childProfileId;
+    }
+
+    public List<CategoryDTO> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(List<CategoryDTO> categories) {
+        this.categories = categories;
+    }
+}
@@ -0,0 +1,9 @@
+package com.augmentative.communication.dto;
+
+/**
+ * One row of the flat board projection: a category joined with one of its image+words.
+ * The word columns are null for a category without words.
+ */
+public record BoardRow(Long categoryId, String categoryName, String categoryImageUrl,
+                       Long imageWordId, String word, String imageWordImageUrl) {
+}
@@ -0,0 +1,57 @@
+package com.augmentative.communication.dto;
+
+import java.util.List;
+
+/**
+ * A board sent over the WebSocket channel: the whole board when a device asks for it, then
+ * only the changes. Versions count up by one per change message, so a device that sees a gap
+ * should ask for the whole board again.
+ */
+public class BoardUpdateDTO {
+    private Long childProfileId;
+    private long version;
+    private BoardDTO board;
+    private List<BoardChangeDTO> changes;
+
+    public BoardUpdateDTO() {
+    }
+
+    public BoardUpdateDTO(Long childProfileId, long version, BoardDTO board, List<BoardChangeDTO> changes) {
+        this.childProfileId = childProfileId;
+        this.version = version;
+        this.board = board;
+        this.changes = changes;
+    }
+
+    public Long getChildProfileId() {
+        return childProfileId;
+    }
+
+    public void setChildProfileId(Long childProfileId) {
+        this.childProfileId = childProfileId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public BoardDTO getBoard() {
+        return board;
+    }
+
+    public void setBoard(BoardDTO board) {
+        this.board = board;
+    }
+
+    public List<BoardChangeDTO> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<BoardChangeDTO> changes) {
+        this.changes = changes;
+    }
+}
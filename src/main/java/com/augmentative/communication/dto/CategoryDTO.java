@@ -2,6 +2,7 @@ package com.augmentative.communication.dto;
 
 import com.augmentative.communication.model.Category;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -37,6 +38,26 @@ public class CategoryDTO {
         return dto;
     }
 
+    /**
+     * Groups the rows of the flat board projection into categories with their words,
+     * keeping the order of the rows.
+     */
+    public static List<CategoryDTO> fromBoardRows(List<BoardRow> rows) {
+        List<CategoryDTO> categories = new ArrayList<>();
+        CategoryDTO current = null;
+        for (BoardRow row : rows) {
+            if (current == null || !current.getId().equals(row.categoryId())) {
+                current = new CategoryDTO(row.categoryId(), row.categoryName(), row.categoryImageUrl());
+                current.setItems(new ArrayList<>());
+                categories.add(current);
+            }
+            if (row.imageWordId() != null) {
+                current.getItems().add(new ImageWordDTO(row.imageWordId(), row.word(), row.imageWordImageUrl(), row.categoryId()));
+            }
+        }
+        return categories;
+    }
+
     public Category toEntity() {
         Category category = new Category();
         category.setId(this.id);
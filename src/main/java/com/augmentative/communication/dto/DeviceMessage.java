@@ -0,0 +1,55 @@
+package com.augmentative.communication.dto;
+
+/**
+ * A message sent to a device over the WebSocket channel: either a reply to a
+ * {@link DeviceRequest}, with its {@code id}, or a pushed {@code board-changed} message
+ * without one. The status is the HTTP status the matching REST call would have returned.
+ */
+public class DeviceMessage {
+    private String id;
+    private String type;
+    private int status;
+    private Object data;
+
+    public DeviceMessage() {
+    }
+
+    public DeviceMessage(String id, String type, int status, Object data) {
+        this.id = id;
+        this.type = type;
+        this.status = status;
+        this.data = data;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    public void setData(Object data) {
+        this.data = data;
+    }
+}
@@ -0,0 +1,65 @@
+package com.augmentative.communication.dto;
+
+import java.util.List;
+
+/**
+ * A request sent by a device over the WebSocket channel. Which fields are used depends on the type:
+ * <ul>
+ *     <li>{@code board}: {@code profileId}; returns the board and subscribes to its changes.</li>
+ *     <li>{@code unsubscribe}: {@code profileId}; stops the board's change messages.</li>
+ *     <li>{@code conjugate}: {@code sentence}; returns the image+words with their conjugated forms.</li>
+ *     <li>{@code speech}: {@code text}; returns an {@link AudioClipDTO} for the synthesized speech.</li>
+ *     <li>{@code process}: {@code sentence}; a {@code conjugate} reply, then a {@code speech} reply.</li>
+ * </ul>
+ * The {@code id} is chosen by the device and copied into the replies.
+ */
+public class DeviceRequest {
+    private String id;
+    private String type;
+    private Long profileId;
+    private List<ImageWordDTO> sentence;
+    private String text;
+
+    public DeviceRequest() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getProfileId() {
+        return profileId;
+    }
+
+    public void setProfileId(Long profileId) {
+        this.profileId = profileId;
+    }
+
+    public List<ImageWordDTO> getSentence() {
+        return sentence;
+    }
+
+    public void setSentence(List<ImageWordDTO> sentence) {
+        this.sentence = sentence;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
@@ -3,10 +3,14 @@ package com.augmentative.communication.dto;
 public class LoginResponse {
     private String token; // Renamed jwt to token
     private Long userId;
+    private String refreshToken;
+    private long expiresIn; // Seconds until the access token expires
 
-    public LoginResponse(String token, Long userId) { // Updated constructor
+    public LoginResponse(String token, Long userId, String refreshToken, long expiresIn) {
         this.token = token;
         this.userId = userId;
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
     }
 
     // Getters and Setters
@@ -25,4 +29,20 @@ public class LoginResponse {
     public void setUserId(Long userId) {
         this.userId = userId;
     }
-}
\ No newline at end of file
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+
+    public void setExpiresIn(long expiresIn) {
+        this.expiresIn = expiresIn;
+    }
+}
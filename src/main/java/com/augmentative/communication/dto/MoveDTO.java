@@ -0,0 +1,35 @@
+package com.augmentative.communication.dto;
+
+/**
+ * A single reorder step: place the item {@code id} right after its sibling {@code afterId},
+ * or first in its list if {@code afterId} is null.
+ */
+public class MoveDTO {
+    private Long id;
+    private Long afterId;
+
+    public MoveDTO() {
+    }
+
+    public MoveDTO(Long id, Long afterId) {
+        this.id = id;
+        this.afterId = afterId;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getAfterId() {
+        return afterId;
+    }
+
+    public void setAfterId(Long afterId) {
+        this.afterId = afterId;
+    }
+}
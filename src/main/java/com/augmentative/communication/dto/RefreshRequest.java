@@ -0,0 +1,14 @@
+package com.augmentative.communication.dto;
+
+public class RefreshRequest {
+    private String refreshToken;
+
+    // Getters and Setters
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
@@ -0,0 +1,34 @@
+package com.augmentative.communication.dto;
+
+/**
+ * Sent as the last event of a stream whose work failed after the response had started,
+ * with the HTTP status the request would otherwise have got.
+ */
+public class StreamErrorDTO {
+    private int status;
+    private String message;
+
+    public StreamErrorDTO() {
+    }
+
+    public StreamErrorDTO(int status, String message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,53 @@
+package com.augmentative.communication.dto;
+
+/**
+ * An image+word found by the vocabulary search, with the category it's in.
+ */
+public class VocabularyMatchDTO {
+    private Long id;
+    private String word;
+    private String imageUrl;
+    private Long categoryId;
+
+    public VocabularyMatchDTO() {
+    }
+
+    public VocabularyMatchDTO(Long id, String word, String imageUrl, Long categoryId) {
+        this.id = id;
+        this.word = word;
+        this.imageUrl = imageUrl;
+        this.categoryId = categoryId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+    public void setWord(String word) {
+        this.word = word;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+}
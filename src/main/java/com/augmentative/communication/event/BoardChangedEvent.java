@@ -0,0 +1,10 @@
+package com.augmentative.communication.event;
+
+/**
+ * Published when anything shown on a child profile's board (its categories or their
+ * image+words) has been created, changed or deleted.
+ *
+ * @param childProfileId The ID of the child profile whose board changed.
+ */
+public record BoardChangedEvent(Long childProfileId) {
+}
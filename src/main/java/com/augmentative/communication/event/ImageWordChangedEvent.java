@@ -0,0 +1,12 @@
+package com.augmentative.communication.event;
+
+/**
+ * Published when the text or picture of a child profile's image+words has changed, i.e. when
+ * an image+word was created, edited or deleted. Reorders don't publish it.
+ *
+ * @param childProfileId The ID of the child profile the image+words belong to.
+ * @param imageWordId The ID of the changed image+word, or null if many of the profile's
+ *                    image+words changed at once (e.g. a category was deleted).
+ */
+public record ImageWordChangedEvent(Long childProfileId, Long imageWordId) {
+}
@@ -0,0 +1,19 @@
+package com.augmentative.communication.event;
+
+/**
+ * Published when a child profile, category or image+word is created or deleted, i.e. when
+ * the tree of who owns what changes. Edits and reorders don't publish it.
+ *
+ * @param type What was created or deleted.
+ * @param id The ID of the created or deleted row.
+ * @param parentId The ID of the user, child profile or category it belongs to, or null if
+ *                 it was deleted together with everything below it.
+ */
+public record OwnershipChangedEvent(Type type, Long id, Long parentId) {
+
+    public enum Type {
+        CHILD_PROFILE,
+        CATEGORY,
+        IMAGE_WORD
+    }
+}
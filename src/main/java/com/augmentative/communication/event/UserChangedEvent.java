@@ -0,0 +1,9 @@
+package com.augmentative.communication.event;
+
+/**
+ * Published when a user's tokens were revoked or the user was deleted.
+ *
+ * @param userId The ID of the user.
+ */
+public record UserChangedEvent(Long userId) {
+}
@@ -0,0 +1,72 @@
+package com.augmentative.communication.filter;
+
+import com.augmentative.communication.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Authenticates a WebSocket connection once, during the handshake, with the same access token
+ * and checks as {@link JwtRequestFilter}. The token is taken from the Authorization header or,
+ * for clients that can't set headers on a WebSocket request, the {@code access_token} query
+ * parameter, which is logged as a warning because URLs end up in access logs. The principal and
+ * the token's version and expiry are kept as session attributes; messages on the connection
+ * aren't authenticated again, the connection is closed when the token expires or is revoked.
+ */
+@Component
+public class JwtHandshakeInterceptor implements HandshakeInterceptor {
+
+    public static final String PRINCIPAL_ATTRIBUTE = "principal";
+    public static final String EXPIRES_AT_ATTRIBUTE = "expiresAt";
+    public static final String TOKEN_VERSION_ATTRIBUTE = "tokenVersion";
+
+    private final JwtRequestFilter jwtRequestFilter;
+    private final JwtUtil jwtUtil;
+
+    public JwtHandshakeInterceptor(JwtRequestFilter jwtRequestFilter, JwtUtil jwtUtil) {
+        this.jwtRequestFilter = jwtRequestFilter;
+        this.jwtUtil = jwtUtil;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler,
+                                   Map<String, Object> attributes) {
+        Optional<Claims> claims = token(request).flatMap(jwtUtil::verify);
+        Optional<Object> principal = claims.flatMap(jwtRequestFilter::authenticate).map(UsernamePasswordAuthenticationToken::getPrincipal);
+        if (principal.isEmpty()) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        attributes.put(PRINCIPAL_ATTRIBUTE, principal.get());
+        attributes.put(EXPIRES_AT_ATTRIBUTE, claims.get().getExpiration().toInstant());
+        attributes.put(TOKEN_VERSION_ATTRIBUTE, claims.get().get(JwtUtil.TOKEN_VERSION_CLAIM, Integer.class));
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private static Optional<String> token(ServerHttpRequest request) {
+        String authorizationHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+            return Optional.of(authorizationHeader.substring(7));
+        }
+        String queryToken = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("access_token");
+        if (queryToken != null) {
+            System.err.println("WebSocket handshake from " + request.getRemoteAddress()
+                    + " sent its access token in the URL, where access logs keep it; it should use the Authorization header.");
+        }
+        return Optional.ofNullable(queryToken);
+    }
+}
@@ -1,32 +1,41 @@
 package com.augmentative.communication.filter;
 
-import com.augmentative.communication.service.UserDetailsServiceImpl;
+import com.augmentative.communication.dto.AuthenticatedUser;
+import com.augmentative.communication.service.UserStateCache;
 import com.augmentative.communication.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Custom filter to intercept incoming requests and validate JWT tokens.
  * It extends OncePerRequestFilter to ensure it's executed only once per request.
+ *
+ * The principal is built from the token's claims (user ID, username, authorities) without
+ * loading the user. The only per-request check against user state is the token version,
+ * answered by the in-memory {@link UserStateCache}.
  */
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
-    private final UserDetailsServiceImpl userDetailsService;
+    private final UserStateCache userStateCache;
     private final JwtUtil jwtUtil;
 
-    public JwtRequestFilter(UserDetailsServiceImpl userDetailsService, JwtUtil jwtUtil) {
-        this.userDetailsService = userDetailsService;
+    public JwtRequestFilter(UserStateCache userStateCache, JwtUtil jwtUtil) {
+        this.userStateCache = userStateCache;
         this.jwtUtil = jwtUtil;
     }
 
@@ -36,25 +45,15 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String token = null; // Renamed jwt to token
+        // Check if Authorization header exists and starts with "Bearer ", and no authentication is set yet
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String token = authorizationHeader.substring(7);
 
-        // Check if Authorization header exists and starts with "Bearer "
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            token = authorizationHeader.substring(7); // Extract JWT token, renamed jwt to token
-            username = jwtUtil.extractUsername(token); // Extract username from token
-        }
-
-        // If username is extracted and no authentication is currently set in the SecurityContext
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-
-            // Validate the token
-            if (jwtUtil.validateToken(token, userDetails.getUsername())) { // Renamed jwt to token
-                // Create an authentication token
-                UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            // Verified once: signature and expiration, served from the token cache after the first request
+            Optional<UsernamePasswordAuthenticationToken> authentication = jwtUtil.verify(token).flatMap(this::authenticate);
+            if (authentication.isPresent()) {
+                UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = authentication.get();
                 usernamePasswordAuthenticationToken
                         .setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 // Set the authentication in the SecurityContext
@@ -63,4 +62,33 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         }
         chain.doFilter(request, response); // Continue the filter chain
     }
+
+    /**
+     * Builds the authentication of a verified token from its claims.
+     *
+     * @param claims The claims of a token with a valid signature that hasn't expired.
+     * @return The authentication, or empty if the token lacks claims or has been revoked.
+     */
+    Optional<UsernamePasswordAuthenticationToken> authenticate(Claims claims) {
+        if (!isCurrent(claims)) {
+            return Optional.empty();
+        }
+        AuthenticatedUser principal = new AuthenticatedUser(claims.get(JwtUtil.USER_ID_CLAIM, Long.class), claims.getSubject());
+        List<GrantedAuthority> authorities = ((List<?>) claims.get(JwtUtil.AUTHORITIES_CLAIM, List.class)).stream()
+                .map(authority -> (GrantedAuthority) new SimpleGrantedAuthority(authority.toString()))
+                .toList();
+        return Optional.of(new UsernamePasswordAuthenticationToken(principal, null, authorities));
+    }
+
+    /**
+     * Checks that the token has the claims this application issues and hasn't been revoked.
+     * Tokens issued before the claims were added are rejected, so their users sign in again.
+     */
+    private boolean isCurrent(Claims claims) {
+        Long userId = claims.get(JwtUtil.USER_ID_CLAIM, Long.class);
+        Integer tokenVersion = claims.get(JwtUtil.TOKEN_VERSION_CLAIM, Integer.class);
+        return claims.getSubject() != null && userId != null && tokenVersion != null
+                && claims.get(JwtUtil.AUTHORITIES_CLAIM) instanceof List
+                && userStateCache.isCurrent(userId, tokenVersion);
+    }
 }
\ No newline at end of file
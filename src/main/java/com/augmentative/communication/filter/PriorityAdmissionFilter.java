@@ -0,0 +1,109 @@
+package com.augmentative.communication.filter;
+
+import com.augmentative.communication.util.PriorityAdmission;
+import com.augmentative.communication.util.PriorityAdmission.Limits;
+import com.augmentative.communication.util.PriorityAdmission.Priority;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies each request by endpoint and admits it through a {@link PriorityAdmission}, so
+ * that when the server is busy a child's speech and board reads go ahead of a parent's uploads.
+ * It runs before Spring Security, so shed requests cost no token verification; a shed request
+ * gets HTTP status 503 (Service Unavailable) with a Retry-After header.
+ *
+ * <ul>
+ *     <li>Interactive: {@code /api/text/**}, the device WebSocket handshake, and GETs of
+ *         boards, categories, image+words and images.</li>
+ *     <li>Bulk: multipart uploads, board import and export, and moves of several items.</li>
+ *     <li>Standard: everything else.</li>
+ * </ul>
+ *
+ * The slot is held while the request thread handles the request. Requests that continue
+ * asynchronously (text processing, streams) give it back when their thread is released;
+ * their blocking work is limited by the {@link com.augmentative.communication.service.Bulkheads}.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class PriorityAdmissionFilter extends OncePerRequestFilter {
+
+    private static final Pattern BOARD_READ = Pattern.compile(
+            "/api/(profiles/[^/]+/board|categories/.*|imagewords/.*|images/.*)");
+    private static final Pattern BULK = Pattern.compile(
+            "/api/(profiles/[^/]+/(import|export)|categories/moves|imagewords/moves)");
+
+    private final PriorityAdmission admission;
+
+    public PriorityAdmissionFilter(MeterRegistry meterRegistry,
+                                   @Value("${admission.max-concurrent:100}") int maxConcurrent,
+                                   @Value("${admission.interactive.queue-size:60}") int interactiveQueueSize,
+                                   @Value("${admission.interactive.max-wait:5s}") Duration interactiveMaxWait,
+                                   @Value("${admission.standard.reserve:10}") int standardReserve,
+                                   @Value("${admission.standard.queue-size:30}") int standardQueueSize,
+                                   @Value("${admission.standard.max-wait:3s}") Duration standardMaxWait,
+                                   @Value("${admission.bulk.reserve:30}") int bulkReserve,
+                                   @Value("${admission.bulk.queue-size:10}") int bulkQueueSize,
+                                   @Value("${admission.bulk.max-wait:1s}") Duration bulkMaxWait) {
+        this.admission = new PriorityAdmission(maxConcurrent, Map.of(
+                Priority.INTERACTIVE, new Limits(0, interactiveQueueSize, interactiveMaxWait),
+                Priority.STANDARD, new Limits(standardReserve, standardQueueSize, standardMaxWait),
+                Priority.BULK, new Limits(bulkReserve, bulkQueueSize, bulkMaxWait)), meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Priority priority = classify(request);
+        boolean admitted;
+        try {
+            admitted = admission.acquire(priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, priority == Priority.BULK ? "5" : "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            admission.release(priority);
+        }
+    }
+
+    /**
+     * Determines the priority of a request from its method, path and content type.
+     */
+    static Priority classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        String contentType = request.getContentType();
+        if (path.startsWith("/api/text/") || path.startsWith("/ws/")) {
+            return Priority.INTERACTIVE;
+        }
+        if (contentType != null && contentType.startsWith("multipart/") || BULK.matcher(path).matches()) {
+            return Priority.BULK;
+        }
+        if ("GET".equals(method) && BOARD_READ.matcher(path).matches()) {
+            return Priority.INTERACTIVE;
+        }
+        return Priority.STANDARD;
+    }
+}
@@ -0,0 +1,40 @@
+package com.augmentative.communication.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Moves ID generation from identity columns to sequences, so Hibernate can assign IDs
+ * before inserting and send inserts in JDBC batches.
+ *
+ * Each sequence steps by {@link #ALLOCATION_SIZE}, the allocation size of the entities'
+ * pooled generators. Hibernate's pooled optimizer hands out the block that ends at the
+ * sequence value, so the sequence starts one block past the highest existing ID.
+ * Written in Java because the start value depends on the data already in the table.
+ */
+public class V3__PooledIdSequences extends BaseJavaMigration {
+
+    public static final int ALLOCATION_SIZE = 50;
+
+    private static final String[] TABLES = {"users", "child_profile", "category", "image_word", "pending_image_deletions"};
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            for (String table : TABLES) {
+                long maxId;
+                try (ResultSet result = statement.executeQuery("select coalesce(max(id), 0) from " + table)) {
+                    result.next();
+                    maxId = result.getLong(1);
+                }
+                statement.execute("create sequence " + table + "_seq start with " + (maxId + ALLOCATION_SIZE)
+                        + " increment by " + ALLOCATION_SIZE);
+                // IDs now always come from the sequence; an insert without one should fail, not collide
+                statement.execute("alter table " + table + " alter column id drop identity");
+            }
+        }
+    }
+}
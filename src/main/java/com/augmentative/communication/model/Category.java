@@ -1,6 +1,9 @@
 package com.augmentative.communication.model;
 
+import com.augmentative.communication.config.CacheConfig;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -9,9 +12,12 @@ import java.util.Set;
  * Each category has a picture and an order number, and contains multiple ImageWord entries.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.CATEGORY_REGION)
 public class Category {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_seq")
+    @SequenceGenerator(name = "category_seq", sequenceName = "category_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -20,8 +26,8 @@ public class Category {
     @Column(nullable = false)
     private String imageUrl; // URL to the category picture
 
-    @Column(nullable = true)
-    private Integer orderNumber;
+    @Column(nullable = false)
+    private Integer orderNumber; // Sparse ordering key, see OrderKeys
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "child_profile_id", nullable = false)
@@ -29,6 +35,7 @@ public class Category {
 
     @OneToMany(mappedBy = "category", cascade = CascadeType.ALL, orphanRemoval = true)
     @OrderBy("orderNumber ASC") // Order image+words by orderNumber
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.CATEGORY_IMAGE_WORDS_REGION)
     private Set<ImageWord> imageWords = new HashSet<>();
 
     // Getters and Setters
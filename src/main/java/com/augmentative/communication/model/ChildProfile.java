@@ -1,6 +1,9 @@
 package com.augmentative.communication.model;
 
+import com.augmentative.communication.config.CacheConfig;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -9,9 +12,12 @@ import java.util.Set;
  * Each child profile can have multiple categories.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.CHILD_PROFILE_REGION)
 public class ChildProfile {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "child_profile_seq")
+    @SequenceGenerator(name = "child_profile_seq", sequenceName = "child_profile_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -23,6 +29,7 @@ public class ChildProfile {
 
     @OneToMany(mappedBy = "childProfile", cascade = CascadeType.ALL, orphanRemoval = true)
     @OrderBy("orderNumber ASC")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.CHILD_PROFILE_CATEGORIES_REGION)
     private Set<Category> categories = new HashSet<>();
 
     // Getters and Setters
@@ -1,15 +1,21 @@
 package com.augmentative.communication.model;
 
+import com.augmentative.communication.config.CacheConfig;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Represents an image-word pair within a category.
  * Each ImageWord has a picture, a word, and an order number.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.IMAGE_WORD_REGION)
 public class ImageWord {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "image_word_seq")
+    @SequenceGenerator(name = "image_word_seq", sequenceName = "image_word_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -18,8 +24,8 @@ public class ImageWord {
     @Column(nullable = false)
     private String imageUrl;
 
-    @Column(nullable = true)
-    private Integer orderNumber;
+    @Column(nullable = false)
+    private Integer orderNumber; // Sparse ordering key, see OrderKeys
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
@@ -0,0 +1,67 @@
+package com.augmentative.communication.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Outbox entry for an image file that must be deleted once the transaction
+ * that stopped referencing it has committed.
+ */
+@Entity
+@Table(name = "pending_image_deletions")
+public class PendingImageDeletion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pending_image_deletions_seq")
+    @SequenceGenerator(name = "pending_image_deletions_seq", sequenceName = "pending_image_deletions_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String imageUrl;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    public PendingImageDeletion() {
+    }
+
+    public PendingImageDeletion(String imageUrl) {
+        this.imageUrl = imageUrl;
+        this.createdAt = Instant.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+}
@@ -1,6 +1,9 @@
 package com.augmentative.communication.model;
 
+import com.augmentative.communication.config.CacheConfig;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -9,10 +12,13 @@ import java.util.Set;
  * Each user can have multiple child profiles.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.USER_REGION)
 @Table(name = "users") // Renamed to 'users' to avoid conflict with 'user' keyword in some DBs
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -24,6 +30,9 @@ public class User {
     @Column(unique = true, nullable = false)
     private String email;
 
+    @Column(nullable = false)
+    private Integer tokenVersion = 0; // Raised to revoke all issued tokens
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<ChildProfile> childProfiles = new HashSet<>();
 
@@ -60,6 +69,14 @@ public class User {
         this.email = email;
     }
 
+    public Integer getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(Integer tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     public Set<ChildProfile> getChildProfiles() {
         return childProfiles;
     }
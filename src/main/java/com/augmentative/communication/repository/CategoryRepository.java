@@ -1,13 +1,93 @@
 package com.augmentative.communication.repository;
 
+import com.augmentative.communication.dto.BoardRow;
 import com.augmentative.communication.model.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for Category entities.
  * Provides methods for CRUD operations and finding categories by child profile.
  */
 public interface CategoryRepository extends JpaRepository<Category, Long> {
+    // Served from the query cache until the category table changes
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Category> findByChildProfileIdOrderByOrderNumberAsc(Long childProfileId);
+
+    /**
+     * Loads a whole board (categories and their words, both in display order) with a single
+     * statement, projected straight into rows so no entities or lazy collections are involved.
+     */
+    @Query("select new com.augmentative.communication.dto.BoardRow(c.id, c.name, c.imageUrl, w.id, w.word, w.imageUrl) "
+            + "from Category c left join c.imageWords w "
+            + "where c.childProfile.id = :childProfileId "
+            + "order by c.orderNumber asc, c.id asc, w.orderNumber asc, w.id asc")
+    List<BoardRow> findBoardRows(@Param("childProfileId") Long childProfileId);
+
+    @Query("select c.imageUrl from Category c")
+    List<String> findAllImageUrls();
+
+    /**
+     * Collects the image URLs of a profile's categories and all their image+words in one query.
+     */
+    @Query("select c.imageUrl from Category c where c.childProfile.id = :childProfileId "
+            + "union all select w.imageUrl from ImageWord w where w.category.childProfile.id = :childProfileId")
+    List<String> findAllImageUrlsByChildProfileId(@Param("childProfileId") Long childProfileId);
+
+    /**
+     * Collects the image URLs of a category and its image+words in one query.
+     */
+    @Query("select c.imageUrl from Category c where c.id = :categoryId "
+            + "union all select w.imageUrl from ImageWord w where w.category.id = :categoryId")
+    List<String> findAllImageUrlsByCategoryId(@Param("categoryId") Long categoryId);
+
+    @Query("select c.childProfile.id from Category c where c.id = :categoryId")
+    Optional<Long> findChildProfileIdById(@Param("categoryId") Long categoryId);
+
+    /**
+     * Deletes all categories of a profile with one statement. Their image+words must be deleted first.
+     */
+    @Modifying
+    @Query("delete from Category c where c.childProfile.id = :childProfileId")
+    int deleteAllByChildProfileId(@Param("childProfileId") Long childProfileId);
+
+    /**
+     * Deletes a category with one statement. Its image+words must be deleted first.
+     */
+    @Modifying
+    @Query("delete from Category c where c.id = :categoryId")
+    int deleteByIdInBulk(@Param("categoryId") Long categoryId);
+
+    /**
+     * Loads the categories of a profile for reordering, bypassing the query cache.
+     */
+    @Query("select c from Category c where c.childProfile.id = :childProfileId order by c.orderNumber asc, c.id asc")
+    List<Category> findSiblings(@Param("childProfileId") Long childProfileId);
+
+    /**
+     * Loads a category and locks its row until the transaction ends,
+     * so reorders of the same category's image+words run one at a time.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Category c where c.id = :id")
+    Optional<Category> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Finds profiles whose category keys need renumbering: two neighbours less than
+     * {@code minGap} apart, or keys getting close to the integer limits.
+     */
+    @Query(value = "select distinct child_profile_id from ("
+            + "select child_profile_id, order_number, order_number - lag(order_number) over "
+            + "(partition by child_profile_id order by order_number, id) as gap from category) g "
+            + "where g.gap < :minGap or abs(g.order_number) > :maxKey", nativeQuery = true)
+    List<Long> findChildProfileIdsToRebalance(@Param("minGap") int minGap, @Param("maxKey") int maxKey);
 }
\ No newline at end of file
@@ -1,13 +1,47 @@
 package com.augmentative.communication.repository;
 
 import com.augmentative.communication.model.ChildProfile;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for ChildProfile entities.
  * Provides methods for CRUD operations and finding child profiles by user.
  */
 public interface ChildProfileRepository extends JpaRepository<ChildProfile, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<ChildProfile> findByUserId(Long userId);
+
+    /**
+     * Returns a user's profiles with an ID greater than {@code afterId}, in ID order.
+     */
+    List<ChildProfile> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long afterId, Limit limit);
+
+    @Query("select p.user.id from ChildProfile p where p.id = :id")
+    Optional<Long> findUserIdById(@Param("id") Long id);
+
+    /**
+     * Deletes a profile with one statement. Its categories and image+words must be deleted first.
+     */
+    @Modifying
+    @Query("delete from ChildProfile p where p.id = :id")
+    int deleteByIdInBulk(@Param("id") Long id);
+
+    /**
+     * Loads a profile and locks its row until the transaction ends,
+     * so reorders of the same profile's categories run one at a time.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from ChildProfile p where p.id = :id")
+    Optional<ChildProfile> findByIdForUpdate(@Param("id") Long id);
 }
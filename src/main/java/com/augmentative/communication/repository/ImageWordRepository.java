@@ -1,13 +1,75 @@
 package com.augmentative.communication.repository;
 
 import com.augmentative.communication.model.ImageWord;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for ImageWord entities.
  * Provides methods for CRUD operations and finding image+words by category.
  */
 public interface ImageWordRepository extends JpaRepository<ImageWord, Long> {
+    // Served from the query cache until the image_word table changes
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<ImageWord> findByCategoryIdOrderByOrderNumberAsc(Long categoryId);
+
+    /**
+     * Returns the first page of a category's image+words in (orderNumber, id) order.
+     */
+    @Query("select w from ImageWord w where w.category.id = :categoryId order by w.orderNumber asc, w.id asc")
+    List<ImageWord> findFirstPage(@Param("categoryId") Long categoryId, Limit limit);
+
+    /**
+     * Returns the page of a category's image+words that follows the key (orderNumber, id).
+     * The {@code >=} on orderNumber lets the database seek straight to the key in the index.
+     */
+    @Query("select w from ImageWord w where w.category.id = :categoryId and w.orderNumber >= :orderNumber "
+            + "and (w.orderNumber > :orderNumber or w.id > :id) order by w.orderNumber asc, w.id asc")
+    List<ImageWord> findPageAfter(@Param("categoryId") Long categoryId, @Param("orderNumber") int orderNumber,
+                                  @Param("id") Long id, Limit limit);
+
+    @Query("select w.category.id from ImageWord w where w.id = :id")
+    Optional<Long> findCategoryIdById(@Param("id") Long id);
+
+    @Query("select w.imageUrl from ImageWord w")
+    List<String> findAllImageUrls();
+
+    /**
+     * Deletes all image+words of a profile's categories with one statement.
+     */
+    @Modifying
+    @Query("delete from ImageWord w where w.category.id in "
+            + "(select c.id from Category c where c.childProfile.id = :childProfileId)")
+    int deleteAllByChildProfileId(@Param("childProfileId") Long childProfileId);
+
+    /**
+     * Deletes all image+words of a category with one statement.
+     */
+    @Modifying
+    @Query("delete from ImageWord w where w.category.id = :categoryId")
+    int deleteAllByCategoryId(@Param("categoryId") Long categoryId);
+
+    /**
+     * Loads the image+words of a category for reordering, bypassing the query cache.
+     */
+    @Query("select w from ImageWord w where w.category.id = :categoryId order by w.orderNumber asc, w.id asc")
+    List<ImageWord> findSiblings(@Param("categoryId") Long categoryId);
+
+    /**
+     * Finds categories whose image+word keys need renumbering: two neighbours less than
+     * {@code minGap} apart, or keys getting close to the integer limits.
+     */
+    @Query(value = "select distinct category_id from ("
+            + "select category_id, order_number, order_number - lag(order_number) over "
+            + "(partition by category_id order by order_number, id) as gap from image_word) g "
+            + "where g.gap < :minGap or abs(g.order_number) > :maxKey", nativeQuery = true)
+    List<Long> findCategoryIdsToRebalance(@Param("minGap") int minGap, @Param("maxKey") int maxKey);
 }
@@ -0,0 +1,13 @@
+package com.augmentative.communication.repository;
+
+import com.augmentative.communication.model.PendingImageDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.List;
+
+/**
+ * Repository for the image deletion outbox.
+ * Provides methods for draining pending deletions in insertion order.
+ */
+public interface PendingImageDeletionRepository extends JpaRepository<PendingImageDeletion, Long> {
+    List<PendingImageDeletion> findTop100ByOrderByIdAsc();
+}
@@ -0,0 +1,52 @@
+package com.augmentative.communication.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Keeps synthesized speech in memory for a short while under a random handle, so a stream can
+ * announce that the audio is ready and the tablet can fetch the bytes separately. A clip can
+ * only be fetched by the user it was made for. Clips expire after {@code text.audio.time-to-live},
+ * and the oldest are dropped once all clips together exceed {@code text.audio.max-size}.
+ */
+@Service
+public class AudioClipStore {
+
+    private record Clip(long userId, byte[] audio) {
+    }
+
+    private final Cache<String, Clip> clips;
+
+    public AudioClipStore(@Value("${text.audio.time-to-live:5m}") Duration timeToLive,
+                          @Value("${text.audio.max-size:64MB}") DataSize maxSize) {
+        this.clips = Caffeine.newBuilder()
+                .expireAfterWrite(timeToLive)
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String handle, Clip clip) -> clip.audio().length)
+                .build();
+    }
+
+    /**
+     * @return The handle of the stored clip.
+     */
+    public String put(long userId, byte[] audio) {
+        String handle = UUID.randomUUID().toString();
+        clips.put(handle, new Clip(userId, audio));
+        return handle;
+    }
+
+    /**
+     * @return The clip's audio, or empty if it has expired or belongs to another user.
+     */
+    public Optional<byte[]> get(long userId, String handle) {
+        Clip clip = clips.getIfPresent(handle);
+        return clip != null && clip.userId() == userId ? Optional.of(clip.audio()) : Optional.empty();
+    }
+}
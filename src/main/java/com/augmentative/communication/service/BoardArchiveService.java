@@ -0,0 +1,595 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.event.BoardChangedEvent;
+import com.augmentative.communication.event.ImageWordChangedEvent;
+import com.augmentative.communication.model.Category;
+import com.augmentative.communication.model.ChildProfile;
+import com.augmentative.communication.model.ImageWord;
+import com.augmentative.communication.repository.CategoryRepository;
+import com.augmentative.communication.repository.ChildProfileRepository;
+import com.augmentative.communication.repository.ImageWordRepository;
+import com.augmentative.communication.util.OrderKeys;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Imports and exports a child profile's board as an Open Board Format archive (.obz).
+ *
+ * The archive has a root board with one button per category, each opening a board with the
+ * category's image+words. Export writes the entries straight to the output stream, one category
+ * at a time. Import reads a spooled copy of the archive one board at a time: it stores that
+ * board's images in parallel, inserts its rows in a batch and clears the persistence context,
+ * so memory use depends on the size of one board, not of the archive.
+ */
+@Service
+public class BoardArchiveService {
+
+    private static final String OBF_FORMAT = "open-board-0.1";
+    private static final String MANIFEST_PATH = "manifest.json";
+    private static final String ROOT_BOARD_ID = "root";
+    private static final String LOCALE = "et";
+    // Board JSON is read into memory, image entries are streamed
+    private static final long MAX_BOARD_ENTRY_SIZE = 16 * 1024 * 1024;
+
+    private final ChildProfileRepository childProfileRepository;
+    private final CategoryRepository categoryRepository;
+    private final ImageWordRepository imageWordRepository;
+    private final ImageStorageService imageStorageService;
+    private final ImageCleanupService imageCleanupService;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${obz.import.parallelism:4}")
+    private int importParallelism;
+
+    @Value("${obz.import.max-size:512MB}")
+    private DataSize maxImportSize;
+
+    private ExecutorService imageWorkers;
+
+    /**
+     * Counts of what an import created.
+     *
+     * @param categories The number of categories created.
+     * @param imageWords The number of image+words created.
+     * @param skippedButtons Buttons left out because they had no label or no usable image.
+     */
+    public record ImportResult(int categories, int imageWords, int skippedButtons) {
+    }
+
+    /**
+     * A button of an exported board.
+     */
+    private record ExportButton(String id, String label, String imageUrl, String loadBoardId) {
+    }
+
+    public BoardArchiveService(ChildProfileRepository childProfileRepository, CategoryRepository categoryRepository, ImageWordRepository imageWordRepository,
+                               ImageStorageService imageStorageService, ImageCleanupService imageCleanupService, ObjectMapper objectMapper,
+                               EntityManager entityManager, ApplicationEventPublisher eventPublisher) {
+        this.childProfileRepository = childProfileRepository;
+        this.categoryRepository = categoryRepository;
+        this.imageWordRepository = imageWordRepository;
+        this.imageStorageService = imageStorageService;
+        this.imageCleanupService = imageCleanupService;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    void startImageWorkers() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        imageWorkers = Executors.newFixedThreadPool(importParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "obz-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        imageWorkers.shutdown();
+    }
+
+    /**
+     * Writes a profile's board to a stream as an .obz archive.
+     *
+     * @param childProfileId The ID of the child profile.
+     * @param out The stream to write to; finished but not closed.
+     * @throws IOException If writing fails.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @Transactional(readOnly = true)
+    public void exportProfile(Long childProfileId, OutputStream out) throws IOException {
+        ChildProfile childProfile = childProfileRepository.findById(childProfileId)
+                .orElseThrow(() -> new RuntimeException("ChildProfile not found with ID: " + childProfileId));
+        String profileName = childProfile.getName();
+        List<Category> categories = categoryRepository.findSiblings(childProfileId);
+
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        Map<String, String> boardPaths = new LinkedHashMap<>();
+        Map<String, String> imagePaths = new LinkedHashMap<>();
+        Set<String> writtenImages = new HashSet<>();
+
+        List<ExportButton> categoryButtons = new ArrayList<>();
+        for (Category category : categories) {
+            categoryButtons.add(new ExportButton("category-" + category.getId(), category.getName(), category.getImageUrl(), "category-" + category.getId()));
+        }
+        writeBoard(zip, ROOT_BOARD_ID, profileName, categoryButtons, boardPaths, imagePaths);
+        for (ExportButton button : categoryButtons) {
+            writeImage(zip, button.imageUrl(), writtenImages);
+        }
+
+        for (Category category : categories) {
+            List<ExportButton> wordButtons = new ArrayList<>();
+            for (ImageWord imageWord : imageWordRepository.findSiblings(category.getId())) {
+                wordButtons.add(new ExportButton("word-" + imageWord.getId(), imageWord.getWord(), imageWord.getImageUrl(), null));
+            }
+            writeBoard(zip, "category-" + category.getId(), category.getName(), wordButtons, boardPaths, imagePaths);
+            for (ExportButton button : wordButtons) {
+                writeImage(zip, button.imageUrl(), writtenImages);
+            }
+            // Only the current category's words are kept in memory
+            entityManager.clear();
+        }
+
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(new ZipEntry(MANIFEST_PATH));
+        JsonGenerator json = jsonGenerator(zip);
+        json.writeStartObject();
+        json.writeStringField("format", OBF_FORMAT);
+        json.writeStringField("root", boardPaths.get(ROOT_BOARD_ID));
+        json.writeObjectFieldStart("paths");
+        json.writeObjectField("boards", boardPaths);
+        json.writeObjectField("images", imagePaths);
+        json.writeEndObject();
+        json.writeEndObject();
+        json.flush();
+        zip.closeEntry();
+        zip.finish();
+    }
+
+    /**
+     * Copies an uploaded archive to a temp file, so it can be read with random access.
+     * The caller deletes the file when done.
+     *
+     * @param content The archive bytes; read once and not closed.
+     * @return The temp file.
+     * @throws IOException If the archive is too large or can't be written.
+     */
+    public Path spool(InputStream content) throws IOException {
+        Path archive = Files.createTempFile("board-import-", ".obz");
+        try (OutputStream out = Files.newOutputStream(archive)) {
+            byte[] buffer = new byte[64 * 1024];
+            long size = 0;
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                size += read;
+                if (size > maxImportSize.toBytes()) {
+                    throw new IOException("Archive exceeds the maximum size of " + maxImportSize.toMegabytes() + " MB.");
+                }
+                out.write(buffer, 0, read);
+            }
+            return archive;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(archive);
+            throw e;
+        }
+    }
+
+    /**
+     * Adds the boards of an .obz archive to a profile: every board opened from the root board
+     * becomes a category, appended after the existing ones; buttons on the root board that
+     * don't open a board are collected into one more category named after the root board.
+     * All or nothing: if the import fails, the stored images are deleted again.
+     *
+     * @param childProfileId The ID of the child profile to import into.
+     * @param archive The spooled archive.
+     * @return What was created.
+     * @throws IOException If the archive can't be read or isn't a valid .obz file.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @Transactional
+    public ImportResult importArchive(Long childProfileId, Path archive) throws IOException {
+        ChildProfile childProfile = childProfileRepository.findById(childProfileId)
+                .orElseThrow(() -> new RuntimeException("ChildProfile not found with ID: " + childProfileId));
+        Integer lastKey = childProfile.getCategories().stream()
+                .map(Category::getOrderNumber)
+                .filter(Objects::nonNull)
+                .max(Integer::compare)
+                .orElse(null);
+
+        ImportCounts counts = new ImportCounts();
+        try (ZipFile zip = new ZipFile(archive.toFile(), StandardCharsets.UTF_8)) {
+            JsonNode manifest = readJson(zip, MANIFEST_PATH);
+            String rootPath = manifest.path("root").asText(null);
+            if (rootPath == null) {
+                throw new IOException("The archive has no root board.");
+            }
+            JsonNode root = readJson(zip, rootPath);
+            Map<String, JsonNode> rootImages = imagesById(root);
+
+            List<JsonNode> looseButtons = new ArrayList<>();
+            for (JsonNode button : orderedButtons(root)) {
+                String boardPath = boardPath(manifest, button.get("load_board"));
+                if (boardPath == null) {
+                    looseButtons.add(button);
+                    continue;
+                }
+                JsonNode board = readJson(zip, boardPath);
+                String name = button.path("label").asText(board.path("name").asText(""));
+                lastKey = importCategory(childProfileId, name, rootImages.get(button.path("image_id").asText()),
+                        orderedButtons(board), imagesById(board), zip, lastKey, counts);
+            }
+            if (!looseButtons.isEmpty()) {
+                lastKey = importCategory(childProfileId, root.path("name").asText("Imported"), null,
+                        looseButtons, rootImages, zip, lastKey, counts);
+            }
+        }
+
+        eventPublisher.publishEvent(new BoardChangedEvent(childProfileId));
+        eventPublisher.publishEvent(new ImageWordChangedEvent(childProfileId, null));
+        System.out.println("Imported " + counts.categories + " categories and " + counts.imageWords
+                + " image+words into child profile " + childProfileId + ", skipped " + counts.skippedButtons + " buttons.");
+        return new ImportResult(counts.categories, counts.imageWords, counts.skippedButtons);
+    }
+
+    private static class ImportCounts {
+        int categories;
+        int imageWords;
+        int skippedButtons;
+    }
+
+    /**
+     * Stores one board's images in parallel, then inserts the category and its image+words.
+     *
+     * @return The ordering key of the new category, or {@code lastKey} if nothing was created.
+     */
+    private Integer importCategory(Long childProfileId, String name, JsonNode categoryImage, List<JsonNode> buttons,
+                                   Map<String, JsonNode> images, ZipFile zip, Integer lastKey, ImportCounts counts) throws IOException {
+        List<String> labels = new ArrayList<>();
+        List<Future<String>> wordImages = new ArrayList<>();
+        // Every submitted image, so the ones stored are registered however this board ends
+        List<Future<String>> storedImages = new ArrayList<>();
+        try {
+            for (JsonNode button : buttons) {
+                String label = button.path("label").asText("").trim();
+                JsonNode image = images.get(button.path("image_id").asText());
+                if (label.isEmpty() || image == null) {
+                    counts.skippedButtons++;
+                    continue;
+                }
+                labels.add(label);
+                Future<String> wordImage = imageWorkers.submit(() -> storeImage(zip, image));
+                wordImages.add(wordImage);
+                storedImages.add(wordImage);
+            }
+            // Categories need a picture; fall back to a copy of the first word's picture
+            JsonNode categoryImageSource = categoryImage;
+            for (int i = 0; categoryImageSource == null && i < buttons.size(); i++) {
+                categoryImageSource = images.get(buttons.get(i).path("image_id").asText());
+            }
+            JsonNode categoryImageNode = categoryImageSource;
+            Future<String> categoryImageUrl = null;
+            if (categoryImageNode != null) {
+                categoryImageUrl = imageWorkers.submit(() -> storeImage(zip, categoryImageNode));
+                storedImages.add(categoryImageUrl);
+            }
+
+            String categoryUrl = awaitImage(categoryImageUrl);
+            List<ImageWord> imageWords = new ArrayList<>();
+            for (int i = 0; i < labels.size(); i++) {
+                String imageUrl = awaitImage(wordImages.get(i));
+                if (imageUrl == null) {
+                    counts.skippedButtons++;
+                    continue;
+                }
+                ImageWord imageWord = new ImageWord();
+                imageWord.setWord(labels.get(i));
+                imageWord.setImageUrl(imageUrl);
+                imageWord.setOrderNumber(OrderKeys.append(imageWords.isEmpty() ? null : imageWords.get(imageWords.size() - 1).getOrderNumber()));
+                imageWords.add(imageWord);
+            }
+            if (categoryUrl == null || name.isBlank()) {
+                counts.skippedButtons += imageWords.size();
+                imageWords.forEach(imageWord -> imageStorageService.deleteImage(imageWord.getImageUrl()));
+                if (categoryUrl != null) {
+                    imageStorageService.deleteImage(categoryUrl);
+                }
+                return lastKey;
+            }
+
+            Category category = new Category();
+            category.setChildProfile(childProfileRepository.getReferenceById(childProfileId));
+            category.setName(name.trim());
+            category.setImageUrl(categoryUrl);
+            category.setOrderNumber(OrderKeys.append(lastKey));
+            categoryRepository.save(category);
+            imageWords.forEach(imageWord -> imageWord.setCategory(category));
+            imageWordRepository.saveAll(imageWords);
+
+            // Send this board's rows in batches and forget them before the next board
+            entityManager.flush();
+            entityManager.clear();
+            counts.categories++;
+            counts.imageWords += imageWords.size();
+            return category.getOrderNumber();
+        } finally {
+            deleteOnRollback(storedImages);
+        }
+    }
+
+    /**
+     * Stores an image embedded in the archive, either as an entry or as a data URI.
+     * Images that are only linked by URL aren't downloaded.
+     */
+    private String storeImage(ZipFile zip, JsonNode image) throws IOException {
+        String path = image.path("path").asText(null);
+        String data = image.path("data").asText(null);
+        InputStream content;
+        if (path != null && zip.getEntry(path) != null) {
+            content = zip.getInputStream(zip.getEntry(path));
+        } else if (data != null && data.startsWith("data:") && data.contains(";base64,")) {
+            byte[] encoded = data.substring(data.indexOf(";base64,") + 8).getBytes(StandardCharsets.US_ASCII);
+            content = Base64.getMimeDecoder().wrap(new ByteArrayInputStream(encoded));
+        } else {
+            throw new IOException("Image " + image.path("id").asText() + " isn't embedded in the archive.");
+        }
+        try (InputStream in = content) {
+            return imageStorageService.saveImage(in);
+        }
+    }
+
+    /**
+     * Waits for a stored image.
+     *
+     * @return The image URL, or null if the image couldn't be stored (e.g. an unsupported type).
+     */
+    private String awaitImage(Future<String> storedImage) throws IOException {
+        if (storedImage == null) {
+            return null;
+        }
+        try {
+            return storedImage.get();
+        } catch (ExecutionException e) {
+            System.out.println("Skipping image: " + e.getCause().getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted.", e);
+        }
+    }
+
+    /**
+     * Waits for every image of a board, even after an interrupt or a failure, and registers
+     * each one that was stored for deletion if the import rolls back. Images still being
+     * stored would otherwise be left behind, and would read from an archive about to be closed.
+     */
+    private void deleteOnRollback(List<Future<String>> storedImages) {
+        boolean interrupted = false;
+        for (Future<String> storedImage : storedImages) {
+            while (true) {
+                try {
+                    imageCleanupService.deleteOnRollback(storedImage.get());
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException e) {
+                    // Nothing was stored
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private JsonNode readJson(ZipFile zip, String path) throws IOException {
+        ZipEntry entry = zip.getEntry(path);
+        if (entry == null) {
+            throw new IOException("The archive has no entry " + path + ".");
+        }
+        if (entry.getSize() > MAX_BOARD_ENTRY_SIZE) {
+            throw new IOException("Board " + path + " is too large.");
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            return objectMapper.readTree(in);
+        }
+    }
+
+    private static String boardPath(JsonNode manifest, JsonNode loadBoard) {
+        if (loadBoard == null) {
+            return null;
+        }
+        String path = loadBoard.path("path").asText(null);
+        if (path == null && loadBoard.has("id")) {
+            path = manifest.path("paths").path("boards").path(loadBoard.get("id").asText()).asText(null);
+        }
+        return path;
+    }
+
+    private static Map<String, JsonNode> imagesById(JsonNode board) {
+        Map<String, JsonNode> images = new HashMap<>();
+        for (JsonNode image : board.path("images")) {
+            images.put(image.path("id").asText(), image);
+        }
+        return images;
+    }
+
+    /**
+     * Returns a board's buttons in reading order of its grid; buttons that aren't placed on
+     * the grid aren't shown by OBF viewers and are left out. Without a grid, the buttons are
+     * taken in the order they're listed.
+     */
+    private static List<JsonNode> orderedButtons(JsonNode board) {
+        List<JsonNode> buttons = new ArrayList<>();
+        board.path("buttons").forEach(buttons::add);
+        JsonNode order = board.path("grid").path("order");
+        if (!order.isArray() || order.isEmpty()) {
+            return buttons;
+        }
+        Map<String, JsonNode> buttonsById = new HashMap<>();
+        buttons.forEach(button -> buttonsById.put(button.path("id").asText(), button));
+        List<JsonNode> ordered = new ArrayList<>();
+        for (JsonNode row : order) {
+            for (JsonNode id : row) {
+                JsonNode button = id.isNull() ? null : buttonsById.remove(id.asText());
+                if (button != null) {
+                    ordered.add(button);
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private void writeBoard(ZipOutputStream zip, String boardId, String name, List<ExportButton> buttons,
+                            Map<String, String> boardPaths, Map<String, String> imagePaths) throws IOException {
+        String boardPath = "boards/" + boardId + ".obf";
+        boardPaths.put(boardId, boardPath);
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(new ZipEntry(boardPath));
+
+        JsonGenerator json = jsonGenerator(zip);
+        json.writeStartObject();
+        json.writeStringField("format", OBF_FORMAT);
+        json.writeStringField("id", boardId);
+        json.writeStringField("locale", LOCALE);
+        json.writeStringField("name", name);
+
+        json.writeArrayFieldStart("buttons");
+        for (ExportButton button : buttons) {
+            json.writeStartObject();
+            json.writeStringField("id", button.id());
+            json.writeStringField("label", button.label());
+            json.writeStringField("image_id", imageId(button.imageUrl()));
+            if (button.loadBoardId() != null) {
+                json.writeObjectFieldStart("load_board");
+                json.writeStringField("id", button.loadBoardId());
+                json.writeStringField("path", "boards/" + button.loadBoardId() + ".obf");
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+
+        json.writeArrayFieldStart("images");
+        Set<String> listedImages = new HashSet<>();
+        for (ExportButton button : buttons) {
+            String imageId = imageId(button.imageUrl());
+            if (!listedImages.add(imageId)) {
+                continue;
+            }
+            String filename = filename(button.imageUrl());
+            imagePaths.put(imageId, "images/" + filename);
+            ImageIngestor.ImageType type = ImageIngestor.ImageType.forFilename(filename);
+            json.writeStartObject();
+            json.writeStringField("id", imageId);
+            json.writeStringField("path", "images/" + filename);
+            if (type != null) {
+                json.writeStringField("content_type", type.getContentType());
+            }
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+
+        // Lay the buttons out in a roughly square grid, row by row
+        int columns = Math.max(1, (int) Math.ceil(Math.sqrt(buttons.size())));
+        int rows = Math.max(1, (buttons.size() + columns - 1) / columns);
+        json.writeObjectFieldStart("grid");
+        json.writeNumberField("rows", rows);
+        json.writeNumberField("columns", columns);
+        json.writeArrayFieldStart("order");
+        for (int row = 0; row < rows; row++) {
+            json.writeStartArray();
+            for (int column = 0; column < columns; column++) {
+                int index = row * columns + column;
+                if (index < buttons.size()) {
+                    json.writeString(buttons.get(index).id());
+                } else {
+                    json.writeNull();
+                }
+            }
+            json.writeEndArray();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+
+        json.writeEndObject();
+        json.flush();
+        zip.closeEntry();
+    }
+
+    private void writeImage(ZipOutputStream zip, String imageUrl, Set<String> writtenImages) throws IOException {
+        String filename = filename(imageUrl);
+        if (!writtenImages.add(filename)) {
+            return;
+        }
+        var image = imageStorageService.loadImage(filename);
+        if (image.isEmpty()) {
+            System.err.println("Image " + filename + " is missing, leaving it out of the export.");
+            return;
+        }
+        // Images are already compressed
+        zip.setLevel(Deflater.NO_COMPRESSION);
+        zip.putNextEntry(new ZipEntry("images/" + filename));
+        Resource resource = image.get();
+        try (InputStream in = resource.getInputStream()) {
+            in.transferTo(zip);
+        }
+        zip.closeEntry();
+    }
+
+    private JsonGenerator jsonGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    private static String filename(String imageUrl) {
+        return imageUrl.startsWith(ImageStorageService.URL_PREFIX) ? imageUrl.substring(ImageStorageService.URL_PREFIX.length()) : imageUrl;
+    }
+
+    private static String imageId(String imageUrl) {
+        return "image-" + filename(imageUrl);
+    }
+}
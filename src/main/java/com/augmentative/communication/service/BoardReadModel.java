@@ -0,0 +1,128 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.dto.BoardDTO;
+import com.augmentative.communication.dto.BoardRow;
+import com.augmentative.communication.dto.CategoryDTO;
+import com.augmentative.communication.event.BoardChangedEvent;
+import com.augmentative.communication.repository.CategoryRepository;
+import com.augmentative.communication.repository.ChildProfileRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Read model for child profile boards. Boards are read far more often than they change,
+ * so each board is kept as ready-to-send UTF-8 JSON (plain and gzip) together with a
+ * version. Reads do no ORM work and no serialization; the bytes are rebuilt after every
+ * committed write that publishes a {@link BoardChangedEvent}.
+ *
+ * Versions come from one counter that only goes up. A view is only ever replaced by one
+ * with a higher version, and a version is taken before the board is queried, so a slow
+ * rebuild can't overwrite the result of a later one. Only the most recently read boards
+ * are kept; the others are built again on their next read.
+ */
+@Service
+public class BoardReadModel {
+
+    private final CategoryRepository categoryRepository;
+    private final ChildProfileRepository childProfileRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, BoardView> views;
+    private final AtomicLong versionCounter = new AtomicLong();
+    // Counts committed board changes, so a board built while a write committed isn't kept
+    private final AtomicLong changes = new AtomicLong();
+    // Keeps ETags from a previous run from matching the versions of this one
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * A serialized board.
+     *
+     * @param version The version of this board, increasing with every rebuild.
+     * @param etag The HTTP entity tag for this version, quotes included.
+     * @param json The board as UTF-8 JSON.
+     * @param gzippedJson The same JSON, gzip compressed.
+     */
+    public record BoardView(long version, String etag, byte[] json, byte[] gzippedJson) {
+    }
+
+    public BoardReadModel(CategoryRepository categoryRepository, ChildProfileRepository childProfileRepository, ObjectMapper objectMapper,
+                          @Value("${board.read-model.max-profiles:1000}") long maxProfiles,
+                          @Value("${board.read-model.idle-expiry:1h}") Duration idleExpiry) {
+        this.categoryRepository = categoryRepository;
+        this.childProfileRepository = childProfileRepository;
+        this.objectMapper = objectMapper;
+        this.views = Caffeine.newBuilder()
+                .maximumSize(maxProfiles)
+                .expireAfterAccess(idleExpiry)
+                .build();
+    }
+
+    /**
+     * Returns the current serialized board of a child profile, building it on first use.
+     *
+     * @param childProfileId The ID of the child profile.
+     * @return The board view.
+     */
+    public BoardView getBoard(Long childProfileId) {
+        BoardView view = views.getIfPresent(childProfileId);
+        return view != null ? view : rebuild(childProfileId);
+    }
+
+    /**
+     * Rebuilds a cached board once the write that changed it has committed.
+     * Boards that were never read aren't built until they are.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBoardChanged(BoardChangedEvent event) {
+        changes.incrementAndGet();
+        if (views.getIfPresent(event.childProfileId()) != null) {
+            rebuild(event.childProfileId());
+        }
+    }
+
+    private BoardView rebuild(Long childProfileId) {
+        long seenChanges = changes.get();
+        long version = versionCounter.incrementAndGet();
+        List<BoardRow> rows = categoryRepository.findBoardRows(childProfileId);
+        if (rows.isEmpty() && !childProfileRepository.existsById(childProfileId)) {
+            // Don't keep boards of deleted profiles around
+            views.invalidate(childProfileId);
+            return serialize(version, new BoardDTO(childProfileId, List.of()));
+        }
+        BoardView view = serialize(version, new BoardDTO(childProfileId, CategoryDTO.fromBoardRows(rows)));
+        BoardView kept = views.asMap().merge(childProfileId, view, (current, built) -> built.version() > current.version() ? built : current);
+        // A change that committed while the rows were read may have skipped this board
+        // because it wasn't cached yet; don't keep what may predate it
+        if (changes.get() != seenChanges) {
+            views.asMap().remove(childProfileId, view);
+        }
+        return kept;
+    }
+
+    private BoardView serialize(long version, BoardDTO board) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(board);
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+                gzip.write(json);
+            }
+            return new BoardView(version, "\"" + epoch + "-" + version + "\"", json, gzipped.toByteArray());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize board of child profile " + board.getChildProfileId(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.dto.BoardDTO;
+import com.augmentative.communication.dto.CategoryDTO;
+import com.augmentative.communication.repository.CategoryRepository;
+import com.augmentative.communication.service.BoardReadModel.BoardView;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service class for reading a child profile's complete board.
+ * The board is loaded with one query, however many categories and words it has;
+ * {@link #getSerializedBoard(Long)} serves it from the {@link BoardReadModel} instead.
+ */
+@Service
+public class BoardService {
+
+    private final CategoryRepository categoryRepository;
+    private final BoardReadModel boardReadModel;
+
+    public BoardService(CategoryRepository categoryRepository, BoardReadModel boardReadModel) {
+        this.categoryRepository = categoryRepository;
+        this.boardReadModel = boardReadModel;
+    }
+
+    @PreAuthorize("isAuthenticated()")
+    @Transactional(readOnly = true)
+    public BoardDTO getBoard(Long childProfileId) {
+        return new BoardDTO(childProfileId, CategoryDTO.fromBoardRows(categoryRepository.findBoardRows(childProfileId)));
+    }
+
+    /**
+     * Returns the board as pre-serialized JSON, without touching the database unless
+     * the board hasn't been built yet.
+     *
+     * @param childProfileId The ID of the child profile.
+     * @return The current board view with its version and ETag.
+     */
+    @PreAuthorize("isAuthenticated()")
+    public BoardView getSerializedBoard(Long childProfileId) {
+        return boardReadModel.getBoard(childProfileId);
+    }
+}
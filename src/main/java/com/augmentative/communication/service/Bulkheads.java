@@ -0,0 +1,83 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.util.Bulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The {@link Bulkhead}s for blocking work that depends on something outside the application:
+ * <ul>
+ *     <li>{@code morphology}: the Python estnltk script, one subprocess per sentence.</li>
+ *     <li>{@code tts}: the remote text-to-speech API, including its retries.</li>
+ *     <li>{@code images}: decoding, hashing and storing uploaded images.</li>
+ * </ul>
+ * Each has its own {@code bulkhead.<name>.max-concurrent}, {@code queue-size} and {@code timeout}.
+ * {@code bulkhead.virtual-threads} starts them all on virtual threads (Java 21+); it can also
+ * be switched at runtime through the {@code bulkheads} actuator endpoint.
+ */
+@Service
+public class Bulkheads {
+
+    private final Bulkhead morphology;
+    private final Bulkhead textToSpeech;
+    private final Bulkhead images;
+
+    public Bulkheads(MeterRegistry meterRegistry,
+                     @Value("${bulkhead.virtual-threads:false}") boolean virtualThreads,
+                     @Value("${bulkhead.morphology.max-concurrent:4}") int morphologyConcurrency,
+                     @Value("${bulkhead.morphology.queue-size:16}") int morphologyQueueSize,
+                     @Value("${bulkhead.morphology.timeout:30s}") Duration morphologyTimeout,
+                     @Value("${bulkhead.tts.max-concurrent:8}") int ttsConcurrency,
+                     @Value("${bulkhead.tts.queue-size:32}") int ttsQueueSize,
+                     @Value("${bulkhead.tts.timeout:60s}") Duration ttsTimeout,
+                     @Value("${bulkhead.images.max-concurrent:4}") int imagesConcurrency,
+                     @Value("${bulkhead.images.queue-size:32}") int imagesQueueSize,
+                     @Value("${bulkhead.images.timeout:60s}") Duration imagesTimeout) {
+        this.morphology = new Bulkhead("morphology", morphologyConcurrency, morphologyQueueSize, morphologyTimeout, virtualThreads, meterRegistry);
+        this.textToSpeech = new Bulkhead("tts", ttsConcurrency, ttsQueueSize, ttsTimeout, virtualThreads, meterRegistry);
+        this.images = new Bulkhead("images", imagesConcurrency, imagesQueueSize, imagesTimeout, virtualThreads, meterRegistry);
+        if (virtualThreads && !Bulkhead.virtualThreadsSupported()) {
+            System.err.println("bulkhead.virtual-threads is set, but this JVM has no virtual threads; using platform threads.");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        all().forEach(Bulkhead::shutdown);
+    }
+
+    public Bulkhead morphology() {
+        return morphology;
+    }
+
+    public Bulkhead textToSpeech() {
+        return textToSpeech;
+    }
+
+    public Bulkhead images() {
+        return images;
+    }
+
+    public List<Bulkhead> all() {
+        return List.of(morphology, textToSpeech, images);
+    }
+
+    /**
+     * Switches all bulkheads between platform and virtual threads.
+     *
+     * @return Whether they now use virtual threads.
+     */
+    public boolean setUseVirtualThreads(boolean useVirtualThreads) {
+        boolean applied = false;
+        for (Bulkhead bulkhead : all()) {
+            applied = bulkhead.setUseVirtualThreads(useVirtualThreads);
+        }
+        System.out.println("Bulkheads now run on " + (applied ? "virtual" : "platform") + " threads.");
+        return applied;
+    }
+}
@@ -4,15 +4,26 @@ import com.augmentative.communication.model.Category;
 import com.augmentative.communication.model.ChildProfile;
 import com.augmentative.communication.repository.CategoryRepository;
 import com.augmentative.communication.repository.ChildProfileRepository;
+import com.augmentative.communication.repository.ImageWordRepository;
 import com.augmentative.communication.dto.CategoryDTO;
+import com.augmentative.communication.dto.MoveDTO;
+import com.augmentative.communication.event.BoardChangedEvent;
+import com.augmentative.communication.event.ImageWordChangedEvent;
+import com.augmentative.communication.event.OwnershipChangedEvent;
+import com.augmentative.communication.util.OrderKeys;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * Service class for managing Category entities.
@@ -22,21 +33,27 @@ import java.util.stream.Collectors;
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ImageWordRepository imageWordRepository;
     private final ChildProfileRepository childProfileRepository;
     private final ImageStorageService imageStorageService;
+    private final ImageCleanupService imageCleanupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CollectionCacheEvictor collectionCacheEvictor;
 
-    public CategoryService(CategoryRepository categoryRepository, ChildProfileRepository childProfileRepository, ImageStorageService imageStorageService) {
+    public CategoryService(CategoryRepository categoryRepository, ImageWordRepository imageWordRepository, ChildProfileRepository childProfileRepository, ImageStorageService imageStorageService, ImageCleanupService imageCleanupService, ApplicationEventPublisher eventPublisher, CollectionCacheEvictor collectionCacheEvictor) {
         this.categoryRepository = categoryRepository;
+        this.imageWordRepository = imageWordRepository;
         this.childProfileRepository = childProfileRepository;
         this.imageStorageService = imageStorageService;
+        this.imageCleanupService = imageCleanupService;
+        this.eventPublisher = eventPublisher;
+        this.collectionCacheEvictor = collectionCacheEvictor;
     }
 
     @PreAuthorize("isAuthenticated()")
     public List<CategoryDTO> findByChildProfileId(Long childProfileId) {
-        return categoryRepository.findByChildProfileIdOrderByOrderNumberAsc(childProfileId)
-                .stream()
-                .map(CategoryDTO::fromEntity)
-                .collect(Collectors.toList());
+        // One flat query instead of lazily loading every category's words
+        return CategoryDTO.fromBoardRows(categoryRepository.findBoardRows(childProfileId));
     }
 
     @PreAuthorize("isAuthenticated()")
@@ -45,24 +62,36 @@ public class CategoryService {
     }
 
     @PreAuthorize("isAuthenticated()")
+    @Transactional
     public CategoryDTO save(Long childProfileId, String name, MultipartFile imageFile) throws IOException {
         Optional<ChildProfile> childProfileOptional = childProfileRepository.findById(childProfileId);
         if (childProfileOptional.isPresent()) {
             // Save the image and get the URL
             String imageUrl = imageStorageService.saveImage(imageFile);
+            imageCleanupService.deleteOnRollback(imageUrl);
             System.out.println(imageUrl);
+            ChildProfile childProfile = childProfileOptional.get();
             Category category = new Category();
-            category.setChildProfile(childProfileOptional.get());
+            category.setChildProfile(childProfile);
             category.setName(name);
-            //category.setOrderNumber(orderNumber);
+            // Append after the last category; computed in memory so seeding doesn't flush between inserts
+            category.setOrderNumber(OrderKeys.append(childProfile.getCategories().stream()
+                    .map(Category::getOrderNumber)
+                    .filter(Objects::nonNull)
+                    .max(Integer::compare)
+                    .orElse(null)));
             category.setImageUrl(imageUrl); // Set the URL from the storage service
             Category savedCategory = categoryRepository.save(category);
+            childProfile.getCategories().add(savedCategory);
+            eventPublisher.publishEvent(new BoardChangedEvent(childProfileId));
+            eventPublisher.publishEvent(new OwnershipChangedEvent(OwnershipChangedEvent.Type.CATEGORY, savedCategory.getId(), childProfileId));
             return CategoryDTO.fromEntity(savedCategory);
         }
         throw new RuntimeException("ChildProfile not found with ID: " + childProfileId);
     }
 
     @PreAuthorize("isAuthenticated()")
+    @Transactional
     public CategoryDTO update(Long categoryId, String name, MultipartFile imageFile) throws IOException {
         return categoryRepository.findById(categoryId)
                 .map(category -> {
@@ -75,6 +104,7 @@ public class CategoryService {
                     if (hasNewImage) {
                         try {
                             String newImageUrl = imageStorageService.saveImage(imageFile);
+                            imageCleanupService.deleteOnRollback(newImageUrl);
                             category.setImageUrl(newImageUrl);
                         } catch (IOException e) {
                             hasNewImage = false;
@@ -84,25 +114,87 @@ public class CategoryService {
 
                     Category savedCategory = categoryRepository.save(category);
                     if (hasNewImage) {
-                        imageStorageService.deleteImage(oldImageUrl);
+                        imageCleanupService.scheduleDeletion(oldImageUrl);
                     }
+                    eventPublisher.publishEvent(new BoardChangedEvent(category.getChildProfile().getId()));
                     return CategoryDTO.fromEntity(savedCategory);
                 })
                 .orElseThrow(() -> new RuntimeException("Category not found with ID: " + categoryId));
     }
 
     @PreAuthorize("isAuthenticated()")
+    @Transactional
     public void deleteById(Long id) {
-        Optional<Category> categoryOptional = categoryRepository.findById(id);
-        if (categoryOptional.isPresent()) {
-            Category category = categoryOptional.get();
+        Long childProfileId = categoryRepository.findChildProfileIdById(id)
+                .orElseThrow(() -> new RuntimeException("Category not found with ID: " + id));
 
-            category.getImageWords().forEach(x -> imageStorageService.deleteImage(x.getImageUrl()));
-            imageStorageService.deleteImage(category.getImageUrl());
+        // Set-based: no entities are loaded, the image files are deleted in the background after commit
+        imageCleanupService.scheduleDeletions(categoryRepository.findAllImageUrlsByCategoryId(id));
+        imageWordRepository.deleteAllByCategoryId(id);
+        categoryRepository.deleteByIdInBulk(id);
+        eventPublisher.publishEvent(new BoardChangedEvent(childProfileId));
+        eventPublisher.publishEvent(new ImageWordChangedEvent(childProfileId, null));
+        eventPublisher.publishEvent(new OwnershipChangedEvent(OwnershipChangedEvent.Type.CATEGORY, id, null));
+    }
+
+    /**
+     * Moves a category within its profile's list, see {@link #applyMoves(List)}.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @Transactional
+    public void move(Long categoryId, Long afterId) {
+        applyMovesInTransaction(List.of(new MoveDTO(categoryId, afterId)));
+    }
+
+    /**
+     * Applies a list of moves in order, in one transaction. Each move normally changes only
+     * the moved category's ordering key; the changed rows are written in JDBC batches on commit.
+     *
+     * @param moves The moves; each places a category after a sibling in the same profile, or first.
+     * @throws RuntimeException If a category doesn't exist or isn't in the same profile as its new neighbour.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @Transactional
+    public void applyMoves(List<MoveDTO> moves) {
+        applyMovesInTransaction(moves);
+    }
+
+    /**
+     * Renumbers the categories of a profile with even gaps, keeping their order.
+     * Used by the background rebalancing, so it isn't restricted to a signed in user.
+     *
+     * @param childProfileId The ID of the child profile.
+     */
+    @Transactional
+    public void rebalance(Long childProfileId) {
+        childProfileRepository.findByIdForUpdate(childProfileId).ifPresent(childProfile -> {
+            OrderKeys.rebalance(categoryRepository.findSiblings(childProfileId), Category::setOrderNumber);
+            collectionCacheEvictor.evictReordered(CollectionCacheEvictor.CHILD_PROFILE_CATEGORIES_ROLE, List.of(childProfileId));
+        });
+    }
 
-            categoryRepository.deleteById(id);
-        } else {
-            throw new RuntimeException("Category not found with ID: " + id);
+    private void applyMovesInTransaction(List<MoveDTO> moves) {
+        Map<Long, List<Category>> siblingsByProfile = new HashMap<>();
+        for (MoveDTO move : moves) {
+            Category category = categoryRepository.findById(move.getId())
+                    .orElseThrow(() -> new RuntimeException("Category not found with ID: " + move.getId()));
+            Long childProfileId = category.getChildProfile().getId();
+            List<Category> siblings = siblingsByProfile.computeIfAbsent(childProfileId, id -> {
+                // Locks the profile so concurrent reorders can't compute the same key
+                childProfileRepository.findByIdForUpdate(id);
+                return new ArrayList<>(categoryRepository.findSiblings(id));
+            });
+            Category after = null;
+            if (move.getAfterId() != null) {
+                after = siblings.stream()
+                        .filter(sibling -> sibling.getId().equals(move.getAfterId()))
+                        .findFirst()
+                        .orElseThrow(() -> new RuntimeException("Category " + move.getAfterId()
+                                + " is not in the same profile as category " + move.getId()));
+            }
+            OrderKeys.move(siblings, category, after, Category::getOrderNumber, Category::setOrderNumber);
         }
+        collectionCacheEvictor.evictReordered(CollectionCacheEvictor.CHILD_PROFILE_CATEGORIES_ROLE, siblingsByProfile.keySet());
+        siblingsByProfile.keySet().forEach(childProfileId -> eventPublisher.publishEvent(new BoardChangedEvent(childProfileId)));
     }
-}
\ No newline at end of file
+}
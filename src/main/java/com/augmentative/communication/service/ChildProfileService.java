@@ -2,14 +2,26 @@ package com.augmentative.communication.service;
 
 import com.augmentative.communication.dto.CategoryDTO;
 import com.augmentative.communication.dto.ChildProfileDTO;
+import com.augmentative.communication.dto.PageResponse;
+import com.augmentative.communication.event.BoardChangedEvent;
+import com.augmentative.communication.event.ImageWordChangedEvent;
+import com.augmentative.communication.event.OwnershipChangedEvent;
 import com.augmentative.communication.model.ChildProfile;
 import com.augmentative.communication.model.User;
+import com.augmentative.communication.repository.CategoryRepository;
 import com.augmentative.communication.repository.ChildProfileRepository;
+import com.augmentative.communication.repository.ImageWordRepository;
 import com.augmentative.communication.repository.UserRepository;
 import com.augmentative.communication.util.InMemoryMultipartFile;
+import com.augmentative.communication.util.PageCursor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -28,17 +40,25 @@ public class ChildProfileService {
 
     private final ChildProfileRepository childProfileRepository;
     private final UserRepository userRepository;
+    private final CategoryRepository categoryRepository;
+    private final ImageWordRepository imageWordRepository;
 
     private final CategoryService categoryService;
     private final ImageWordService imageWordService;
-    private final ImageStorageService imageStorageService;
+    private final ImageCleanupService imageCleanupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
-    public ChildProfileService(ChildProfileRepository childProfileRepository, UserRepository userRepository, CategoryService categoryService, ImageWordService imageWordService, ImageStorageService imageStorageService) {
+    public ChildProfileService(ChildProfileRepository childProfileRepository, UserRepository userRepository, CategoryRepository categoryRepository, ImageWordRepository imageWordRepository, CategoryService categoryService, ImageWordService imageWordService, ImageCleanupService imageCleanupService, ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate) {
         this.childProfileRepository = childProfileRepository;
         this.userRepository = userRepository;
+        this.categoryRepository = categoryRepository;
+        this.imageWordRepository = imageWordRepository;
         this.categoryService = categoryService;
         this.imageWordService = imageWordService;
-        this.imageStorageService = imageStorageService;
+        this.imageCleanupService = imageCleanupService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
     }
 
     public List<ChildProfileDTO> findByUserId(Long userId) {
@@ -48,21 +68,54 @@ public class ChildProfileService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Returns one page of a user's child profiles in ID order, seeking from the ID in the cursor.
+     *
+     * @param userId The ID of the user.
+     * @param cursor The cursor of the previous page, or null for the first page.
+     * @param limit The page size, capped at {@link PageCursor#MAX_PAGE_SIZE}.
+     * @return The page and the cursor of the next one.
+     */
+    public PageResponse<ChildProfileDTO> findPageByUserId(Long userId, String cursor, int limit) {
+        int pageSize = PageCursor.pageSize(limit);
+        long afterId = cursor == null || cursor.isEmpty() ? 0L : PageCursor.decode(cursor, 1)[0];
+        List<ChildProfile> profiles = childProfileRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, afterId, Limit.of(pageSize + 1));
+
+        String nextCursor = null;
+        if (profiles.size() > pageSize) {
+            profiles = profiles.subList(0, pageSize);
+            nextCursor = PageCursor.encode(profiles.get(pageSize - 1).getId());
+        }
+        return new PageResponse<>(profiles.stream().map(ChildProfileDTO::fromEntity).collect(Collectors.toList()), nextCursor);
+    }
+
     public Optional<ChildProfileDTO> findById(Long id) {
         return childProfileRepository.findById(id).map(ChildProfileDTO::fromEntity);
     }
 
+    public boolean existsById(Long id) {
+        return childProfileRepository.existsById(id);
+    }
+
+    /**
+     * Creates a child profile with the default categories and image+words.
+     * The profile is committed first and the seeded rows in a second transaction, flushed
+     * together in a few JDBC batches, so a failed seeding leaves an empty profile rather
+     * than no profile at all.
+     */
     public ChildProfileDTO save(Long userId, ChildProfileDTO childProfileDTO) {
-        Optional<User> userOptional = userRepository.findById(userId);
-        if (userOptional.isPresent()) {
+        ChildProfile savedProfile = transactionTemplate.execute(status -> {
+            User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
             ChildProfile childProfile = childProfileDTO.toEntity();
-            childProfile.setUser(userOptional.get());
-            ChildProfile savedProfile = childProfileRepository.save(childProfile);
-
-            seedCategoriesAndImageWords(savedProfile.getId());
-            return ChildProfileDTO.fromEntity(savedProfile);
-        }
-        throw new RuntimeException("User not found with ID: " + userId);
+            childProfile.setUser(user);
+            ChildProfile saved = childProfileRepository.save(childProfile);
+            eventPublisher.publishEvent(new OwnershipChangedEvent(OwnershipChangedEvent.Type.CHILD_PROFILE, saved.getId(), userId));
+            return saved;
+        });
+
+        seedCategoriesAndImageWords(savedProfile.getId());
+        return ChildProfileDTO.fromEntity(savedProfile);
     }
 
     public ChildProfileDTO update(Long profileId, ChildProfileDTO updatedProfileDTO) {
@@ -75,17 +128,20 @@ public class ChildProfileService {
                 .orElseThrow(() -> new RuntimeException("ChildProfile not found with ID: " + profileId));
     }
 
+    /**
+     * Deletes a profile with its categories and image+words using a few set-based statements,
+     * without loading the profile graph. The image files are deleted in the background after commit.
+     */
+    @Transactional
     public void deleteById(Long id) {
-        Optional<ChildProfile> childProfileOptional = childProfileRepository.findById(id);
-        if (childProfileOptional.isPresent()) {
-            ChildProfile childProfile = childProfileOptional.get();
-
-            childProfile.getCategories().forEach(x -> {
-                imageStorageService.deleteImage(x.getImageUrl());
-                x.getImageWords().forEach(y -> imageStorageService.deleteImage(y.getImageUrl()));
-            });
-        }
-        childProfileRepository.deleteById(id);
+        imageCleanupService.scheduleDeletions(categoryRepository.findAllImageUrlsByChildProfileId(id));
+        imageWordRepository.deleteAllByChildProfileId(id);
+        categoryRepository.deleteAllByChildProfileId(id);
+        childProfileRepository.deleteByIdInBulk(id);
+        // Drops the cached board of the deleted profile
+        eventPublisher.publishEvent(new BoardChangedEvent(id));
+        eventPublisher.publishEvent(new ImageWordChangedEvent(id, null));
+        eventPublisher.publishEvent(new OwnershipChangedEvent(OwnershipChangedEvent.Type.CHILD_PROFILE, id, null));
     }
 
     public List<CategoryDTO> seedCategoriesAndImageWords(Long childProfileId) {
@@ -113,28 +169,36 @@ public class ChildProfileService {
             InMemoryMultipartFile eatImage = new InMemoryMultipartFile(eatImageBytes, "eat.png", "image/png");
 
 
-            CategoryDTO beginningsCategory = categoryService.save(
-                    childProfileId,
-                    "Algused",
-                    beginningsCategoryImage
-            );
-            CategoryDTO activitiesCategory = categoryService.save(
-                    childProfileId,
-                    "Tegevused",
-                    activitiesCategoryImage
-            );
-            System.out.println("Seeded categories.");
-
-
-            imageWordService.save(beginningsCategory.getId(), "Ma tahan", iWantImage);
-            imageWordService.save(beginningsCategory.getId(), "Jah", yesImage);
-            imageWordService.save(beginningsCategory.getId(), "Ei", noImage);
-
-            imageWordService.save(activitiesCategory.getId(), "mängima", playImage);
-            imageWordService.save(activitiesCategory.getId(), "sööma", eatImage);
-            imageWordService.save(activitiesCategory.getId(), "magama", sleepImage);
-            System.out.println("Seeded image words.");
-            return new LinkedList<CategoryDTO>(Arrays.asList(beginningsCategory, activitiesCategory));
+            // Runs as its own transaction: a failure in any of the services below marks it
+            // rollback-only, so it has to end here rather than in the one that created the profile
+            return transactionTemplate.execute(status -> {
+                try {
+                    CategoryDTO beginningsCategory = categoryService.save(
+                            childProfileId,
+                            "Algused",
+                            beginningsCategoryImage
+                    );
+                    CategoryDTO activitiesCategory = categoryService.save(
+                            childProfileId,
+                            "Tegevused",
+                            activitiesCategoryImage
+                    );
+                    System.out.println("Seeded categories.");
+
+
+                    imageWordService.save(beginningsCategory.getId(), "Ma tahan", iWantImage);
+                    imageWordService.save(beginningsCategory.getId(), "Jah", yesImage);
+                    imageWordService.save(beginningsCategory.getId(), "Ei", noImage);
+
+                    imageWordService.save(activitiesCategory.getId(), "mängima", playImage);
+                    imageWordService.save(activitiesCategory.getId(), "sööma", eatImage);
+                    imageWordService.save(activitiesCategory.getId(), "magama", sleepImage);
+                    System.out.println("Seeded image words.");
+                    return new LinkedList<CategoryDTO>(Arrays.asList(beginningsCategory, activitiesCategory));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
         } catch (IOException e) {
             System.err.println("Error seeding default images during initial profile setup: " + e.getMessage());
         } catch (RuntimeException e) {
@@ -0,0 +1,52 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.model.Category;
+import com.augmentative.communication.model.ChildProfile;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Evicts second-level cached collections whose order changed while their members didn't.
+ *
+ * A cached collection keeps its elements in the order they were loaded. Hibernate evicts it
+ * when an element is added or removed, but not when an element's ordering key changes, so
+ * moves and renumbering evict the owner's entry themselves: once right away, and again after
+ * commit, in case a concurrent read cached the old order while the transaction was running.
+ */
+@Component
+public class CollectionCacheEvictor {
+
+    public static final String CHILD_PROFILE_CATEGORIES_ROLE = ChildProfile.class.getName() + ".categories";
+    public static final String CATEGORY_IMAGE_WORDS_ROLE = Category.class.getName() + ".imageWords";
+
+    private final Cache cache;
+
+    public CollectionCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.getCache().unwrap(Cache.class);
+    }
+
+    /**
+     * Evicts the cached collections of the given owners now and once the current transaction has committed.
+     *
+     * @param role The collection role, e.g. {@link #CATEGORY_IMAGE_WORDS_ROLE}.
+     * @param ownerIds The IDs of the entities owning the collections.
+     */
+    public void evictReordered(String role, Collection<Long> ownerIds) {
+        List<Long> owners = List.copyOf(ownerIds);
+        owners.forEach(ownerId -> cache.evictCollectionData(role, ownerId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    owners.forEach(ownerId -> cache.evictCollectionData(role, ownerId));
+                }
+            });
+        }
+    }
+}
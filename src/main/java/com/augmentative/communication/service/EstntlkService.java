@@ -2,6 +2,8 @@ package com.augmentative.communication.service;
 
 import com.augmentative.communication.dto.ImageWordDTO;
 import com.augmentative.communication.dto.ProcessSentenceRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
@@ -12,8 +14,16 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Runs the estnltk script and calls the text-to-speech API.
+ *
+ * Metrics: the timers {@code estnltk.script} (one subprocess run), {@code tts.attempt} (one
+ * call to the API, tagged with its outcome) and {@code tts.request} (all attempts of one
+ * request, including the waits between them), and the counter {@code tts.retries}.
+ */
 @Service
 public class EstntlkService {
 
@@ -21,6 +31,7 @@ public class EstntlkService {
     private static final int MAX_RETRIES = 5;
     private static final long BASE_DELAY_MS = 500;
     private final HttpClient httpClient;
+    private final MeterRegistry meterRegistry;
 
     /**
      * Inner record representing the TTS request payload.
@@ -28,7 +39,8 @@ public class EstntlkService {
      */
     private record TTSRequest(String text, String speaker, double speed) {}
 
-    public EstntlkService() {
+    public EstntlkService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
         // Initialize a single, reusable HttpClient instance with a timeout.
         this.httpClient = HttpClient.newBuilder()
                 .version(HttpClient.Version.HTTP_2)
@@ -46,24 +58,14 @@ public class EstntlkService {
      * @return The "modified" sentence.
      */
     public String processSentence(ProcessSentenceRequest request) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
         try {
             System.out.println("Mocking estntlk processing for sentence: \"" + request.getSentence() + "\"");
             var wordList = request.getSentence().stream().map(ImageWordDTO::getWord).toList();
-            var sb = new StringBuilder();
-            sb.append("\"[");
-            for (int i = 0; i < wordList.size(); i++) {
-                String word = wordList.get(i).trim();
-
-                sb.append("'").append(word).append("'");
-
-                if (i < wordList.size() - 1) {
-                    sb.append(", ");
-                }
-            }
-            sb.append("]\"");
 
             // Build the command to run the script
-            ProcessBuilder pb = new ProcessBuilder("python", "script.py", sb.toString());
+            ProcessBuilder pb = new ProcessBuilder("python", "script.py", scriptArgument(wordList));
             pb.redirectErrorStream(true);
 
             // Set the working directory if needed
@@ -86,18 +88,44 @@ public class EstntlkService {
                 throw new RuntimeException("Python script exited with code " + exitCode);
             }
 
-            output.delete(0, 1);
-            output.delete(output.length() - 1, output.length());
-
-            System.out.println(output);
-            return output.toString();
+            String processedSentence = parseScriptOutput(output);
+            System.out.println(processedSentence);
+            outcome = "success";
+            return processedSentence;
 
         } catch (Exception e) {
             e.printStackTrace();
             return "error: Failed to run script.";
+        } finally {
+            sample.stop(meterRegistry.timer("estnltk.script", "outcome", outcome));
         }
     }
 
+    /**
+     * Builds the script's argument: the words as a quoted Python list literal, e.g. {@code "['mina', 'sööma']"}.
+     */
+    static String scriptArgument(List<String> words) {
+        var sb = new StringBuilder();
+        sb.append("\"[");
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i).trim();
+
+            sb.append("'").append(word).append("'");
+
+            if (i < words.size() - 1) {
+                sb.append(", ");
+            }
+        }
+        sb.append("]\"");
+        return sb.toString();
+    }
+
+    /**
+     * Strips the brackets the script prints around its comma-separated words.
+     */
+    static String parseScriptOutput(CharSequence output) {
+        return output.subSequence(1, output.length() - 1).toString();
+    }
 
     /**
      * Sends a POST request to the TTS API, converts the given text to speech,
@@ -131,15 +159,31 @@ public class EstntlkService {
         System.out.printf("Requesting TTS for text: '%s' with speaker: %s%n", logText, speaker);
 
         // 3. Implement POST request with Exponential Backoff
+        Timer.Sample requestSample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            byte[] audio = sendWithRetries(request);
+            outcome = "success";
+            return audio;
+        } finally {
+            requestSample.stop(meterRegistry.timer("tts.request", "outcome", outcome));
+        }
+    }
+
+    private byte[] sendWithRetries(HttpRequest request) throws IOException, InterruptedException {
         for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
             // Calculate delay with jitter: BASE_DELAY * 2^attempt + random(0 to BASE_DELAY)
             long delay = BASE_DELAY_MS * (long) Math.pow(2, attempt)
                     + ThreadLocalRandom.current().nextLong(BASE_DELAY_MS);
 
+            Timer.Sample attemptSample = Timer.start(meterRegistry);
+            boolean responded = false;
             try {
                 // Execute the request, expecting binary response body (byte[])
                 HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
                 int statusCode = response.statusCode();
+                responded = true;
+                attemptSample.stop(meterRegistry.timer("tts.attempt", "outcome", statusCode / 100 + "xx"));
 
                 if (statusCode >= 200 && statusCode < 300) {
                     // Success!
@@ -149,6 +193,7 @@ public class EstntlkService {
                 // Handle retryable errors (429 Too Many Requests, 5xx Server Errors)
                 if (statusCode == 429 || statusCode >= 500) {
                     if (attempt < MAX_RETRIES - 1) {
+                        meterRegistry.counter("tts.retries", "reason", statusCode == 429 ? "throttled" : "server-error").increment();
                         System.out.printf("Retryable error (Status %d) on attempt %d. Waiting %dms...%n",
                                 statusCode, attempt + 1, delay);
                         Thread.sleep(delay);
@@ -164,8 +209,12 @@ public class EstntlkService {
                         statusCode, errorBody.substring(0, Math.min(errorBody.length(), 100))));
 
             } catch (IOException e) {
+                if (!responded) {
+                    attemptSample.stop(meterRegistry.timer("tts.attempt", "outcome", "network-error"));
+                }
                 // Handle network-related errors
                 if (attempt < MAX_RETRIES - 1) {
+                    meterRegistry.counter("tts.retries", "reason", "network-error").increment();
                     System.err.printf("Network error on attempt %d: %s. Waiting %dms...%n",
                             attempt + 1, e.getMessage(), delay);
                     Thread.sleep(delay);
@@ -0,0 +1,130 @@
+package com.augmentative.communication.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Stores every image as its own file below {@code file.upload-dir}.
+ *
+ * Files are fanned out over two levels of hex prefix directories taken from
+ * the (UUID) filename, e.g. "3f9a1c...png" is stored as "3f/9a/3f9a1c...png".
+ * The public URL stays flat ("/images/3f9a1c...png"); the shard is always
+ * derived from the filename, so lookups never list a directory. Files written
+ * before sharding was introduced still live directly in the upload directory
+ * and are found through a single fallback check until {@link ImageShardMigrator}
+ * has moved them.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage-backend", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemImageStore implements ImageStore {
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Override
+    public void write(String filename, Path source) throws IOException {
+        // Create the shard directory if it doesn't exist
+        Path filePath = shardedPath(filename);
+        Files.createDirectories(filePath.getParent());
+        // Readers see either no file or the complete file, never a partial write
+        try {
+            Files.move(source, filePath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, filePath);
+        }
+    }
+
+    @Override
+    public Optional<Resource> read(String filename) {
+        return resolvePath(filename).map(FileSystemResource::new);
+    }
+
+    @Override
+    public boolean delete(String filename) throws IOException {
+        // Try both locations; the file is in exactly one of them (or neither)
+        return Files.deleteIfExists(shardedPath(filename))
+                || Files.deleteIfExists(legacyPath(filename))
+                || Files.deleteIfExists(shardedPath(filename));
+    }
+
+    @Override
+    public Stream<String> list() throws IOException {
+        Path root = getUploadRoot();
+        if (!Files.isDirectory(root)) {
+            return Stream.empty();
+        }
+        // Legacy flat files sit at depth 1, sharded files at depth 3; anything else isn't ours
+        return Files.walk(root, 3)
+                .filter(Files::isRegularFile)
+                .filter(path -> {
+                    String name = path.getFileName().toString();
+                    return !name.startsWith(".")
+                            && (path.equals(shardedPath(name)) || path.equals(legacyPath(name)));
+                })
+                .map(path -> path.getFileName().toString());
+    }
+
+    @Override
+    public Optional<Instant> lastModified(String filename) throws IOException {
+        Optional<Path> path = resolvePath(filename);
+        if (path.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(Files.getLastModifiedTime(path.get()).toInstant());
+    }
+
+    /**
+     * Resolves the on-disk location of a stored image without scanning any directory.
+     * The sharded location is checked first, then the legacy flat location. If neither
+     * exists the sharded location is checked once more, because the migrator may have
+     * moved the file between the two checks.
+     *
+     * @param filename The bare filename as it appears in the image URL.
+     * @return The path of the file, or empty if it doesn't exist.
+     */
+    public Optional<Path> resolvePath(String filename) {
+        Path sharded = shardedPath(filename);
+        if (Files.isRegularFile(sharded)) {
+            return Optional.of(sharded);
+        }
+        Path legacy = legacyPath(filename);
+        if (Files.isRegularFile(legacy)) {
+            return Optional.of(legacy);
+        }
+        return Files.isRegularFile(sharded) ? Optional.of(sharded) : Optional.empty();
+    }
+
+    /**
+     * Returns the sharded location for a filename: "ab/cd/abcd...ext" below the upload directory.
+     * Names too short to shard (never produced by {@link ImageStorageService}) stay in the root.
+     */
+    Path shardedPath(String filename) {
+        Path root = getUploadRoot();
+        if (filename.length() < 4) {
+            return root.resolve(filename);
+        }
+        String lower = filename.toLowerCase();
+        return root.resolve(lower.substring(0, 2)).resolve(lower.substring(2, 4)).resolve(filename);
+    }
+
+    Path legacyPath(String filename) {
+        return getUploadRoot().resolve(filename);
+    }
+
+    Path getUploadRoot() {
+        return Paths.get(uploadDir);
+    }
+}
@@ -0,0 +1,165 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.model.PendingImageDeletion;
+import com.augmentative.communication.repository.PendingImageDeletionRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Deletes image files outside of the request that stopped referencing them.
+ *
+ * Deletions are recorded in a transactional outbox ({@link PendingImageDeletion}) as part
+ * of the caller's transaction, so a rolled back update never loses an image that is still
+ * referenced. After commit a single background worker drains the outbox; a periodic poll
+ * picks up anything left behind by a crash. Images written by a transaction that rolls
+ * back are deleted right away.
+ */
+@Service
+public class ImageCleanupService {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final PendingImageDeletionRepository pendingImageDeletionRepository;
+    private final ImageStorageService imageStorageService;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+
+    public ImageCleanupService(PendingImageDeletionRepository pendingImageDeletionRepository, ImageStorageService imageStorageService) {
+        this.pendingImageDeletionRepository = pendingImageDeletionRepository;
+        this.imageStorageService = imageStorageService;
+    }
+
+    /**
+     * Records that an image is no longer referenced. The file is deleted in the background
+     * once the current transaction (if any) commits.
+     *
+     * @param imageUrl The URL of the image to delete.
+     */
+    public void scheduleDeletion(String imageUrl) {
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            return;
+        }
+        pendingImageDeletionRepository.save(new PendingImageDeletion(imageUrl));
+        afterCommit(this::wakeWorker);
+    }
+
+    /**
+     * Records several unreferenced images at once, see {@link #scheduleDeletion(String)}.
+     *
+     * @param imageUrls The URLs of the images to delete.
+     */
+    public void scheduleDeletions(List<String> imageUrls) {
+        List<PendingImageDeletion> deletions = imageUrls.stream()
+                .filter(imageUrl -> imageUrl != null && !imageUrl.isEmpty())
+                .map(PendingImageDeletion::new)
+                .toList();
+        if (deletions.isEmpty()) {
+            return;
+        }
+        pendingImageDeletionRepository.saveAll(deletions);
+        afterCommit(this::wakeWorker);
+    }
+
+    /**
+     * Deletes a freshly stored image if the current transaction rolls back, so a failed
+     * database write doesn't leave an orphaned file behind.
+     *
+     * @param imageUrl The URL of the image that was just stored.
+     */
+    public void deleteOnRollback(String imageUrl) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    imageStorageService.deleteImage(imageUrl);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drains outbox entries that weren't processed right after their commit,
+     * e.g. because the application stopped in between.
+     */
+    @Scheduled(fixedDelayString = "${file.cleanup.poll-interval-ms:60000}")
+    public void pollPendingDeletions() {
+        wakeWorker();
+    }
+
+    /**
+     * Deletes the files of all pending outbox entries. Runs on the worker thread only.
+     */
+    void processPendingDeletions() {
+        drainQueued.set(false);
+        List<PendingImageDeletion> batch;
+        do {
+            batch = pendingImageDeletionRepository.findTop100ByOrderByIdAsc();
+            List<PendingImageDeletion> finished = new ArrayList<>();
+            List<PendingImageDeletion> retry = new ArrayList<>();
+            for (PendingImageDeletion deletion : batch) {
+                if (imageStorageService.deleteImage(deletion.getImageUrl())) {
+                    finished.add(deletion);
+                } else if (deletion.getAttempts() + 1 >= MAX_ATTEMPTS) {
+                    // Give up; the orphan reconciler will remove the file if it's really unreferenced
+                    System.err.println("Giving up deleting image " + deletion.getImageUrl());
+                    finished.add(deletion);
+                } else {
+                    deletion.setAttempts(deletion.getAttempts() + 1);
+                    retry.add(deletion);
+                }
+            }
+            pendingImageDeletionRepository.deleteAllInBatch(finished);
+            pendingImageDeletionRepository.saveAll(retry);
+            // Failed entries stay at the head of the queue, wait for the next poll to retry them
+            if (!retry.isEmpty()) {
+                return;
+            }
+        } while (!batch.isEmpty());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+
+    private void wakeWorker() {
+        if (drainQueued.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                try {
+                    processPendingDeletions();
+                } catch (RuntimeException e) {
+                    System.err.println("Image cleanup failed: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
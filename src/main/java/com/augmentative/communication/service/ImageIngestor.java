@@ -0,0 +1,145 @@
+package com.augmentative.communication.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Reads an uploaded image exactly once, through a fixed-size buffer, into a temp file
+ * inside the upload directory. While copying it checks the magic bytes to find the real
+ * image type and stops as soon as the size limit is passed, so oversized or non-image
+ * uploads are rejected before they're fully read.
+ *
+ * The temp file lives on the same filesystem as the store, so the store can move it
+ * into place with an atomic rename.
+ */
+@Component
+public class ImageIngestor {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SNIFF_LENGTH = 12;
+    private static final String INCOMING_DIR = ".incoming";
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Value("${file.max-image-size:10MB}")
+    private DataSize maxImageSize;
+
+    /**
+     * Image types accepted for upload, recognised by their leading bytes.
+     */
+    public enum ImageType {
+        PNG(MediaType.IMAGE_PNG_VALUE, ".png"),
+        JPEG(MediaType.IMAGE_JPEG_VALUE, ".jpg"),
+        GIF(MediaType.IMAGE_GIF_VALUE, ".gif"),
+        WEBP("image/webp", ".webp");
+
+        private final String contentType;
+        private final String extension;
+
+        ImageType(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Returns the type of a stored image from its file extension, or null if it isn't one of ours.
+         */
+        public static ImageType forFilename(String filename) {
+            String lower = filename.toLowerCase();
+            if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+                return JPEG;
+            }
+            for (ImageType type : values()) {
+                if (lower.endsWith(type.extension)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+        static ImageType sniff(byte[] header, int length) {
+            if (length >= 8 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G'
+                    && header[4] == '\r' && header[5] == '\n' && header[6] == 0x1A && header[7] == '\n') {
+                return PNG;
+            }
+            if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+                return JPEG;
+            }
+            if (length >= 6 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8'
+                    && (header[4] == '7' || header[4] == '9') && header[5] == 'a') {
+                return GIF;
+            }
+            if (length >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                    && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+                return WEBP;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * An ingested image waiting in its temp file to be committed to the store.
+     * The caller is responsible for deleting {@code tempFile} if it isn't moved.
+     */
+    public record IngestedImage(Path tempFile, ImageType type, long size) {
+    }
+
+    /**
+     * Copies an image stream into a temp file, validating it on the way.
+     *
+     * @param content The image bytes; read once and not closed.
+     * @return The temp file with the detected type and size.
+     * @throws IOException If the stream is empty, not a supported image, too large, or can't be written.
+     */
+    public IngestedImage ingest(InputStream content) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int headerLength = content.readNBytes(buffer, 0, SNIFF_LENGTH);
+        if (headerLength == 0) {
+            throw new IOException("Failed to store empty file.");
+        }
+        ImageType type = ImageType.sniff(buffer, headerLength);
+        if (type == null) {
+            throw new IOException("Unsupported image type, expected PNG, JPEG, GIF or WebP.");
+        }
+
+        long limit = maxImageSize.toBytes();
+        Path incoming = Paths.get(uploadDir).resolve(INCOMING_DIR);
+        Files.createDirectories(incoming);
+        Path tempFile = Files.createTempFile(incoming, ".upload-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            long size = headerLength;
+            out.write(buffer, 0, headerLength);
+
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                size += read;
+                if (size > limit) {
+                    throw new IOException("Image exceeds the maximum size of " + maxImageSize.toKilobytes() + " KB.");
+                }
+                out.write(buffer, 0, read);
+            }
+            return new IngestedImage(tempFile, type, size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+}
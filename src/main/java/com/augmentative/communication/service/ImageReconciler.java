@@ -0,0 +1,139 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.repository.CategoryRepository;
+import com.augmentative.communication.repository.ImageWordRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Periodic mark-and-sweep over the image store. Marks every image referenced by a
+ * category or image+word, then walks the store and deletes what isn't marked.
+ *
+ * Images younger than the grace period are kept: an upload writes its file before the
+ * referencing row is committed. The checks and deletions run on a small pool of threads
+ * and are rate limited so a sweep doesn't starve requests of disk bandwidth.
+ */
+@Service
+public class ImageReconciler {
+
+    private final CategoryRepository categoryRepository;
+    private final ImageWordRepository imageWordRepository;
+    private final ImageStore imageStore;
+    private final ImageStorageService imageStorageService;
+
+    @Value("${file.reconcile.grace-period:1h}")
+    private Duration gracePeriod;
+
+    @Value("${file.reconcile.parallelism:4}")
+    private int parallelism;
+
+    @Value("${file.reconcile.max-deletions-per-second:50}")
+    private int maxDeletionsPerSecond;
+
+    public ImageReconciler(CategoryRepository categoryRepository, ImageWordRepository imageWordRepository, ImageStore imageStore, ImageStorageService imageStorageService) {
+        this.categoryRepository = categoryRepository;
+        this.imageWordRepository = imageWordRepository;
+        this.imageStore = imageStore;
+        this.imageStorageService = imageStorageService;
+    }
+
+    @Scheduled(fixedDelayString = "${file.reconcile.interval-ms:21600000}",
+            initialDelayString = "${file.reconcile.initial-delay-ms:600000}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Image reconciliation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs one mark-and-sweep pass.
+     *
+     * @return The number of orphaned images deleted.
+     * @throws IOException If the store can't be listed.
+     */
+    public int reconcile() throws IOException {
+        Instant startedAt = Instant.now();
+        Instant cutoff = startedAt.minus(gracePeriod);
+
+        // Mark
+        Set<String> referenced = new HashSet<>();
+        Stream.concat(categoryRepository.findAllImageUrls().stream(), imageWordRepository.findAllImageUrls().stream())
+                .filter(imageUrl -> imageUrl != null && imageUrl.startsWith(ImageStorageService.URL_PREFIX))
+                .forEach(imageUrl -> referenced.add(imageUrl.substring(ImageStorageService.URL_PREFIX.length())));
+
+        // Sweep
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        Semaphore inFlight = new Semaphore(parallelism * 4);
+        AtomicInteger deleted = new AtomicInteger();
+        long deletionIntervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxDeletionsPerSecond);
+        AtomicLong nextDeletionSlot = new AtomicLong(System.nanoTime());
+        try (Stream<String> stored = imageStore.list()) {
+            Iterator<String> filenames = stored.iterator();
+            while (filenames.hasNext()) {
+                String filename = filenames.next();
+                if (referenced.contains(filename)) {
+                    continue;
+                }
+                inFlight.acquireUninterruptibly();
+                pool.execute(() -> {
+                    try {
+                        Optional<Instant> lastModified = imageStore.lastModified(filename);
+                        if (lastModified.isEmpty() || lastModified.get().isAfter(cutoff)) {
+                            return;
+                        }
+                        awaitSlot(nextDeletionSlot, deletionIntervalNanos);
+                        if (imageStorageService.deleteImage(ImageStorageService.URL_PREFIX + filename)) {
+                            deleted.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Failed to check image " + filename + ": " + e.getMessage());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        System.out.println("Image reconciliation deleted " + deleted.get() + " orphaned images in "
+                + Duration.between(startedAt, Instant.now()).toMillis() + " ms.");
+        return deleted.get();
+    }
+
+    /**
+     * Waits for the next free deletion slot, spacing deletions evenly across all workers.
+     */
+    private static void awaitSlot(AtomicLong nextSlot, long intervalNanos) {
+        long now = System.nanoTime();
+        long slot = nextSlot.getAndUpdate(previous -> Math.max(previous, now) + intervalNanos);
+        long wait = Math.max(slot, now) - now;
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.augmentative.communication.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Moves images stored in the old flat layout into the sharded layout used by
+ * {@link FileSystemImageStore}. Runs once in a background thread after startup, so the
+ * application keeps serving requests while files are moved; reads fall back to the
+ * flat location until a file has been moved.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage-backend", havingValue = "filesystem", matchIfMissing = true)
+public class ImageShardMigrator {
+
+    private final FileSystemImageStore imageStore;
+
+    @Value("${file.shard-migration.enabled:true}")
+    private boolean enabled;
+
+    public ImageShardMigrator(FileSystemImageStore imageStore) {
+        this.imageStore = imageStore;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startMigration() {
+        if (!enabled || !Files.isDirectory(imageStore.getUploadRoot())) {
+            return;
+        }
+        Thread worker = new Thread(this::migrate, "image-shard-migrator");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Moves every regular file in the root of the upload directory into its shard.
+     *
+     * @return The number of files moved.
+     */
+    public int migrate() {
+        Path root = imageStore.getUploadRoot();
+        int moved = 0;
+        // The directory is streamed, so memory stays flat however many files are left
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root, Files::isRegularFile)) {
+            for (Path legacy : files) {
+                if (moveToShard(legacy)) {
+                    moved++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Image shard migration stopped: " + e.getMessage());
+        }
+        if (moved > 0) {
+            System.out.println("Image shard migration moved " + moved + " files.");
+        }
+        return moved;
+    }
+
+    private boolean moveToShard(Path legacy) {
+        String filename = legacy.getFileName().toString();
+        Path target = imageStore.shardedPath(filename);
+        if (target.equals(legacy)) {
+            return false;
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(legacy, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(legacy, target);
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            // Deleted by a request while we were migrating
+            return false;
+        } catch (FileAlreadyExistsException e) {
+            System.err.println("Image already present in shard, leaving legacy copy: " + filename);
+            return false;
+        } catch (IOException e) {
+            System.err.println("Failed to migrate image " + filename + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -1,58 +1,117 @@
 package com.augmentative.communication.service;
 
-import org.springframework.beans.factory.annotation.Value;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Service for handling image storage and retrieval.
- * This is a mock implementation using the local filesystem.
  *
- * In a production environment, this service would be replaced with
- * an implementation that connects to a NoSQL database (as requested)
+ * This service generates image names and URLs; the bytes themselves are kept by
+ * the {@link ImageStore} selected with {@code file.storage-backend}:
+ * "filesystem" (default, {@link FileSystemImageStore}) stores one file per image,
+ * "segment" ({@link SegmentImageStore}) packs images into large append-only files.
+ *
+ * In a production environment, the store could be replaced with
+ * an implementation that connects to a NoSQL database
  * or a cloud storage provider like Amazon S3, Google Cloud Storage, etc.
  *
- * For a NoSQL database, the `saveImage` method would convert the
- * `MultipartFile` to a byte array and store it in the database with a
- * unique identifier. The `getImage` method would retrieve the byte array
- * using that identifier.
+ * Metrics: {@code images.stored}, the size of each stored image.
  */
 @Service
 public class ImageStorageService {
 
-    @Value("${file.upload-dir}")
-    private String uploadDir;
+    static final String URL_PREFIX = "/images/";
+
+    private final ImageStore imageStore;
+    private final ImageIngestor imageIngestor;
+    private final Bulkheads bulkheads;
+    private final DistributionSummary storedBytes;
+
+    public ImageStorageService(ImageStore imageStore, ImageIngestor imageIngestor, Bulkheads bulkheads, MeterRegistry meterRegistry) {
+        this.imageStore = imageStore;
+        this.imageIngestor = imageIngestor;
+        this.bulkheads = bulkheads;
+        this.storedBytes = DistributionSummary.builder("images.stored").baseUnit("bytes")
+                .description("Size of the images stored").register(meterRegistry);
+    }
 
+    /**
+     * Stores an uploaded image. The work runs in the {@code images} bulkhead, so only a bounded
+     * number of uploads are decoded and written at once.
+     *
+     * @throws RejectedExecutionException If too many uploads are being processed.
+     */
     public String saveImage(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IOException("Failed to store empty file.");
         }
+        try {
+            return bulkheads.images().submit(() -> {
+                try (InputStream content = file.getInputStream()) {
+                    return saveImage(content);
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while storing the image.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException("Failed to store the image.", e.getCause());
+        }
+    }
 
-        // Create the upload directory if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir);
-        Files.createDirectories(uploadPath);
+    /**
+     * Stores an image read from a stream. The stream is read once; the file extension
+     * comes from the detected image type, not from any client-supplied name.
+     *
+     * @param content The image bytes; not closed by this method.
+     * @return The URL of the stored image.
+     * @throws IOException If the image is invalid, too large, or can't be stored.
+     */
+    public String saveImage(InputStream content) throws IOException {
+        ImageIngestor.IngestedImage image = imageIngestor.ingest(content);
+        try {
+            // Generate a unique filename to prevent conflicts
+            String filename = UUID.randomUUID().toString() + image.type().getExtension();
+            imageStore.write(filename, image.tempFile());
+            storedBytes.record(image.size());
 
-        // Generate a unique filename to prevent conflicts
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+            // Return a URL that can be used to retrieve the image
+            // In a real scenario, this URL would point to a public-facing
+            // endpoint or a CDN.
+            return URL_PREFIX + filename;
+        } finally {
+            Files.deleteIfExists(image.tempFile());
         }
-        String filename = UUID.randomUUID().toString() + extension;
-        Path filePath = uploadPath.resolve(filename);
-        System.out.println(filePath);
-        // Save the file to the local filesystem
-        Files.copy(file.getInputStream(), filePath);
+    }
 
-        // Return a URL that can be used to retrieve the image
-        // In a real scenario, this URL would point to a public-facing
-        // endpoint or a CDN.
-        return "/images/" + filename;
+    /**
+     * Loads a stored image for serving.
+     *
+     * @param filename The bare filename as it appears in the image URL.
+     * @return The image, or empty if it doesn't exist or the name is invalid.
+     * @throws IOException If the image exists but can't be read.
+     */
+    public Optional<Resource> loadImage(String filename) throws IOException {
+        if (!isValidFilename(filename)) {
+            return Optional.empty();
+        }
+        return imageStore.read(filename);
     }
 
     /**
@@ -62,26 +121,36 @@ public class ImageStorageService {
      * @return true if the file was successfully deleted or didn't exist, false if an error occurred.
      */
     public boolean deleteImage(String imageUrl) {
-        if (imageUrl == null || imageUrl.isEmpty() || !imageUrl.startsWith("/images/")) {
+        if (imageUrl == null || imageUrl.isEmpty() || !imageUrl.startsWith(URL_PREFIX)) {
             System.out.println("Invalid image URL for deletion: " + imageUrl);
             return false;
         }
 
-        String filename = imageUrl.substring("/images/".length());
-        Path filePath = Paths.get(uploadDir).resolve(filename);
+        String filename = imageUrl.substring(URL_PREFIX.length());
+        if (!isValidFilename(filename)) {
+            System.out.println("Invalid image URL for deletion: " + imageUrl);
+            return false;
+        }
 
         try {
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
+            if (imageStore.delete(filename)) {
                 System.out.println("Deleted image file: " + filename);
-                return true;
             } else {
                 System.out.println("Image file not found for deletion: " + filename);
-                return true;
             }
+            return true;
         } catch (IOException e) {
             System.err.println("Failed to delete image file " + filename + ": " + e.getMessage());
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Rejects names that could escape the upload directory.
+     */
+    private boolean isValidFilename(String filename) {
+        return filename != null && !filename.isEmpty()
+                && !filename.contains("/") && !filename.contains("\\")
+                && !filename.equals(".") && !filename.equals("..");
+    }
+}
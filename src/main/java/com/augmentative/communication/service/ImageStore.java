@@ -0,0 +1,64 @@
+package com.augmentative.communication.service;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage backend for image bytes, addressed by the bare filename that appears in image URLs.
+ * {@link ImageStorageService} owns naming and URL handling and delegates the bytes to the
+ * backend selected with the {@code file.storage-backend} property.
+ */
+public interface ImageStore {
+
+    /**
+     * Stores a new image under the given filename, taking over a fully written temp file.
+     * The temp file is in the upload directory, so it can be renamed into place.
+     *
+     * @param filename The unique filename, e.g. "uuid.png".
+     * @param source The temp file holding the image bytes; may be moved by this call.
+     * @throws IOException If the image can't be written.
+     */
+    void write(String filename, Path source) throws IOException;
+
+    /**
+     * Reads an image.
+     *
+     * @param filename The filename the image was stored under.
+     * @return The image as a resource, or empty if no such image exists.
+     * @throws IOException If the image exists but can't be read.
+     */
+    Optional<Resource> read(String filename) throws IOException;
+
+    /**
+     * Deletes an image.
+     *
+     * @param filename The filename the image was stored under.
+     * @return true if the image existed and was deleted, false if it didn't exist.
+     * @throws IOException If the image exists but can't be deleted.
+     */
+    boolean delete(String filename) throws IOException;
+
+    /**
+     * Lists the filenames of all stored images. Used by the orphan reconciler;
+     * the returned stream must be closed.
+     *
+     * @return A lazily populated stream of filenames.
+     * @throws IOException If the store can't be listed.
+     */
+    Stream<String> list() throws IOException;
+
+    /**
+     * Returns when an image was last written. Backends that don't track single images may
+     * return a later time (e.g. the time their container file was last written), never an earlier one.
+     *
+     * @param filename The filename the image was stored under.
+     * @return The last modification time, or empty if no such image exists.
+     * @throws IOException If the time can't be read.
+     */
+    Optional<Instant> lastModified(String filename) throws IOException;
+}
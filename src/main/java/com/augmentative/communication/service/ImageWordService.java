@@ -5,13 +5,29 @@ import com.augmentative.communication.model.ImageWord;
 import com.augmentative.communication.repository.CategoryRepository;
 import com.augmentative.communication.repository.ImageWordRepository;
 import com.augmentative.communication.dto.ImageWordDTO;
+import com.augmentative.communication.dto.MoveDTO;
+import com.augmentative.communication.dto.PageResponse;
+import com.augmentative.communication.event.BoardChangedEvent;
+import com.augmentative.communication.event.ImageWordChangedEvent;
+import com.augmentative.communication.event.OwnershipChangedEvent;
+import com.augmentative.communication.util.OrderKeys;
+import com.augmentative.communication.util.PageCursor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -24,11 +40,17 @@ public class ImageWordService {
     private final ImageWordRepository imageWordRepository;
     private final CategoryRepository categoryRepository;
     private final ImageStorageService imageStorageService;
+    private final ImageCleanupService imageCleanupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CollectionCacheEvictor collectionCacheEvictor;
 
-    public ImageWordService(ImageWordRepository imageWordRepository, CategoryRepository categoryRepository, ImageStorageService imageStorageService) {
+    public ImageWordService(ImageWordRepository imageWordRepository, CategoryRepository categoryRepository, ImageStorageService imageStorageService, ImageCleanupService imageCleanupService, ApplicationEventPublisher eventPublisher, CollectionCacheEvictor collectionCacheEvictor) {
         this.imageWordRepository = imageWordRepository;
         this.categoryRepository = categoryRepository;
         this.imageStorageService = imageStorageService;
+        this.imageCleanupService = imageCleanupService;
+        this.eventPublisher = eventPublisher;
+        this.collectionCacheEvictor = collectionCacheEvictor;
     }
 
     @PreAuthorize("isAuthenticated()")
@@ -39,30 +61,75 @@ public class ImageWordService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Returns one page of a category's image+words in (orderNumber, id) order. Each page seeks
+     * from the key in its cursor instead of skipping rows, so deep pages cost the same as the first.
+     *
+     * @param categoryId The ID of the category.
+     * @param cursor The cursor of the previous page, or null for the first page.
+     * @param limit The page size, capped at {@link PageCursor#MAX_PAGE_SIZE}.
+     * @return The page and the cursor of the next one.
+     */
+    @PreAuthorize("isAuthenticated()")
+    public PageResponse<ImageWordDTO> findPageByCategoryId(Long categoryId, String cursor, int limit) {
+        int pageSize = PageCursor.pageSize(limit);
+        // One extra row tells whether another page follows
+        Limit fetch = Limit.of(pageSize + 1);
+        List<ImageWord> imageWords;
+        if (cursor == null || cursor.isEmpty()) {
+            imageWords = imageWordRepository.findFirstPage(categoryId, fetch);
+        } else {
+            long[] after = PageCursor.decode(cursor, 2);
+            imageWords = imageWordRepository.findPageAfter(categoryId, Math.toIntExact(after[0]), after[1], fetch);
+        }
+
+        String nextCursor = null;
+        if (imageWords.size() > pageSize) {
+            imageWords = imageWords.subList(0, pageSize);
+            ImageWord last = imageWords.get(pageSize - 1);
+            nextCursor = PageCursor.encode(last.getOrderNumber(), last.getId());
+        }
+        return new PageResponse<>(imageWords.stream().map(ImageWordDTO::fromEntity).collect(Collectors.toList()), nextCursor);
+    }
+
     @PreAuthorize("isAuthenticated()")
     public Optional<ImageWordDTO> findById(Long id) {
         return imageWordRepository.findById(id).map(ImageWordDTO::fromEntity);
     }
 
     @PreAuthorize("isAuthenticated()")
+    @Transactional
     public ImageWordDTO save(Long categoryId, String wordText, MultipartFile imageFile) throws IOException {
         Optional<Category> categoryOptional = categoryRepository.findById(categoryId);
         if (categoryOptional.isPresent()) {
             // Save the image and get the URL
             String imageUrl = imageStorageService.saveImage(imageFile);
+            imageCleanupService.deleteOnRollback(imageUrl);
 
+            Category category = categoryOptional.get();
             ImageWord imageWord = new ImageWord();
-            imageWord.setCategory(categoryOptional.get());
+            imageWord.setCategory(category);
             imageWord.setWord(wordText);
-           // imageWord.setOrderNumber(orderNumber);
+            // Append after the last image+word; computed in memory so seeding doesn't flush between inserts
+            imageWord.setOrderNumber(OrderKeys.append(category.getImageWords().stream()
+                    .map(ImageWord::getOrderNumber)
+                    .filter(Objects::nonNull)
+                    .max(Integer::compare)
+                    .orElse(null)));
             imageWord.setImageUrl(imageUrl); // Set the URL from the storage service
             ImageWord savedImageWord = imageWordRepository.save(imageWord);
+            category.getImageWords().add(savedImageWord);
+            Long childProfileId = category.getChildProfile().getId();
+            eventPublisher.publishEvent(new BoardChangedEvent(childProfileId));
+            eventPublisher.publishEvent(new ImageWordChangedEvent(childProfileId, savedImageWord.getId()));
+            eventPublisher.publishEvent(new OwnershipChangedEvent(OwnershipChangedEvent.Type.IMAGE_WORD, savedImageWord.getId(), categoryId));
             return ImageWordDTO.fromEntity(savedImageWord);
         }
         throw new RuntimeException("Category not found with ID: " + categoryId);
     }
 
     @PreAuthorize("isAuthenticated()")
+    @Transactional
     public ImageWordDTO update(Long imageWordId, String wordText, MultipartFile imageFile) throws IOException {
         return imageWordRepository.findById(imageWordId)
                 .map(imageWord -> {
@@ -75,6 +142,7 @@ public class ImageWordService {
                     if (hasNewImage) {
                         try {
                             String newImageUrl = imageStorageService.saveImage(imageFile);
+                            imageCleanupService.deleteOnRollback(newImageUrl);
                             imageWord.setImageUrl(newImageUrl);
                         } catch (IOException e) {
                             hasNewImage = false;
@@ -84,24 +152,95 @@ public class ImageWordService {
 
                     ImageWord savedImageWord = imageWordRepository.save(imageWord);
                     if (hasNewImage) {
-                        imageStorageService.deleteImage(oldImageUrl);
+                        imageCleanupService.scheduleDeletion(oldImageUrl);
                     }
+                    Long childProfileId = imageWord.getCategory().getChildProfile().getId();
+                    eventPublisher.publishEvent(new BoardChangedEvent(childProfileId));
+                    eventPublisher.publishEvent(new ImageWordChangedEvent(childProfileId, imageWordId));
                     return ImageWordDTO.fromEntity(savedImageWord);
                 })
                 .orElseThrow(() -> new RuntimeException("ImageWord not found with ID: " + imageWordId));
     }
 
     @PreAuthorize("isAuthenticated()")
+    @Transactional
     public void deleteById(Long id) {
         Optional<ImageWord> imageWordOptional = imageWordRepository.findById(id);
         if (imageWordOptional.isPresent()) {
             ImageWord imageWord = imageWordOptional.get();
 
-            imageStorageService.deleteImage(imageWord.getImageUrl());
+            imageCleanupService.scheduleDeletion(imageWord.getImageUrl());
 
             imageWordRepository.deleteById(id);
+            Long childProfileId = imageWord.getCategory().getChildProfile().getId();
+            eventPublisher.publishEvent(new BoardChangedEvent(childProfileId));
+            eventPublisher.publishEvent(new ImageWordChangedEvent(childProfileId, id));
+            eventPublisher.publishEvent(new OwnershipChangedEvent(OwnershipChangedEvent.Type.IMAGE_WORD, id, null));
         } else {
             throw new RuntimeException("ImageWord not found with ID: " + id);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Moves an image+word within its category, see {@link #applyMoves(List)}.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @Transactional
+    public void move(Long imageWordId, Long afterId) {
+        applyMovesInTransaction(List.of(new MoveDTO(imageWordId, afterId)));
+    }
+
+    /**
+     * Applies a list of moves in order, in one transaction. Each move normally changes only
+     * the moved image+word's ordering key; the changed rows are written in JDBC batches on commit.
+     *
+     * @param moves The moves; each places an image+word after a sibling in the same category, or first.
+     * @throws RuntimeException If an image+word doesn't exist or isn't in the same category as its new neighbour.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @Transactional
+    public void applyMoves(List<MoveDTO> moves) {
+        applyMovesInTransaction(moves);
+    }
+
+    /**
+     * Renumbers the image+words of a category with even gaps, keeping their order.
+     * Used by the background rebalancing, so it isn't restricted to a signed in user.
+     *
+     * @param categoryId The ID of the category.
+     */
+    @Transactional
+    public void rebalance(Long categoryId) {
+        categoryRepository.findByIdForUpdate(categoryId).ifPresent(category -> {
+            OrderKeys.rebalance(imageWordRepository.findSiblings(categoryId), ImageWord::setOrderNumber);
+            collectionCacheEvictor.evictReordered(CollectionCacheEvictor.CATEGORY_IMAGE_WORDS_ROLE, List.of(categoryId));
+        });
+    }
+
+    private void applyMovesInTransaction(List<MoveDTO> moves) {
+        Map<Long, List<ImageWord>> siblingsByCategory = new HashMap<>();
+        Set<Long> childProfileIds = new HashSet<>();
+        for (MoveDTO move : moves) {
+            ImageWord imageWord = imageWordRepository.findById(move.getId())
+                    .orElseThrow(() -> new RuntimeException("ImageWord not found with ID: " + move.getId()));
+            Long categoryId = imageWord.getCategory().getId();
+            List<ImageWord> siblings = siblingsByCategory.computeIfAbsent(categoryId, id -> {
+                // Locks the category so concurrent reorders can't compute the same key
+                categoryRepository.findByIdForUpdate(id);
+                return new ArrayList<>(imageWordRepository.findSiblings(id));
+            });
+            ImageWord after = null;
+            if (move.getAfterId() != null) {
+                after = siblings.stream()
+                        .filter(sibling -> sibling.getId().equals(move.getAfterId()))
+                        .findFirst()
+                        .orElseThrow(() -> new RuntimeException("ImageWord " + move.getAfterId()
+                                + " is not in the same category as image+word " + move.getId()));
+            }
+            OrderKeys.move(siblings, imageWord, after, ImageWord::getOrderNumber, ImageWord::setOrderNumber);
+            childProfileIds.add(imageWord.getCategory().getChildProfile().getId());
+        }
+        collectionCacheEvictor.evictReordered(CollectionCacheEvictor.CATEGORY_IMAGE_WORDS_ROLE, siblingsByCategory.keySet());
+        childProfileIds.forEach(childProfileId -> eventPublisher.publishEvent(new BoardChangedEvent(childProfileId)));
+    }
+}
@@ -0,0 +1,55 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.repository.CategoryRepository;
+import com.augmentative.communication.repository.ImageWordRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Periodically renumbers sibling lists whose ordering keys have run short of room, so
+ * later moves keep being single-row updates instead of renumbering inside a request.
+ */
+@Service
+public class OrderKeyRebalancer {
+
+    // Keys beyond this are renumbered long before appends could overflow an int
+    private static final int MAX_KEY = 1 << 30;
+
+    private final CategoryRepository categoryRepository;
+    private final ImageWordRepository imageWordRepository;
+    private final CategoryService categoryService;
+    private final ImageWordService imageWordService;
+
+    @Value("${ordering.rebalance.min-gap:8}")
+    private int minGap;
+
+    public OrderKeyRebalancer(CategoryRepository categoryRepository, ImageWordRepository imageWordRepository, CategoryService categoryService, ImageWordService imageWordService) {
+        this.categoryRepository = categoryRepository;
+        this.imageWordRepository = imageWordRepository;
+        this.categoryService = categoryService;
+        this.imageWordService = imageWordService;
+    }
+
+    @Scheduled(fixedDelayString = "${ordering.rebalance.interval-ms:3600000}",
+            initialDelayString = "${ordering.rebalance.interval-ms:3600000}")
+    public void rebalanceCrowdedLists() {
+        try {
+            int profiles = 0;
+            for (Long childProfileId : categoryRepository.findChildProfileIdsToRebalance(minGap, MAX_KEY)) {
+                categoryService.rebalance(childProfileId);
+                profiles++;
+            }
+            int categories = 0;
+            for (Long categoryId : imageWordRepository.findCategoryIdsToRebalance(minGap, MAX_KEY)) {
+                imageWordService.rebalance(categoryId);
+                categories++;
+            }
+            if (profiles > 0 || categories > 0) {
+                System.out.println("Rebalanced ordering keys of " + profiles + " profiles and " + categories + " categories.");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Ordering key rebalancing failed: " + e.getMessage());
+        }
+    }
+}
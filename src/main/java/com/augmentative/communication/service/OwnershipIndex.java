@@ -0,0 +1,182 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.event.OwnershipChangedEvent;
+import com.augmentative.communication.event.OwnershipChangedEvent.Type;
+import com.augmentative.communication.repository.CategoryRepository;
+import com.augmentative.communication.repository.ChildProfileRepository;
+import com.augmentative.communication.repository.ImageWordRepository;
+import com.augmentative.communication.util.LongLongHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Answers "does this user own this child profile, category or image+word?" from memory, so
+ * authorizing a request doesn't need a query. It keeps three maps of primitive longs: child
+ * profile to user, category to child profile and image+word to category; a check follows at
+ * most three of them.
+ *
+ * A row's parent never changes and IDs come from sequences and are never reused, so a mapping
+ * can't go stale. Mappings are added by {@link OwnershipChangedEvent}s when rows are created,
+ * and loaded with one query on a miss (e.g. for rows that existed before the application
+ * started, or that were imported in bulk). Deleting a row drops only its own mapping, so a
+ * deletion doesn't have to scan the maps while checks wait: the mappings below it are
+ * dropped lazily, by the first check that finds their chain no longer leads to a user.
+ * Each map is cleared when it reaches {@code auth.ownership.max-entries} and then refills
+ * from the rows that are actually used.
+ */
+@Service
+public class OwnershipIndex {
+
+    private static final long NONE = 0L;
+
+    private final ChildProfileRepository childProfileRepository;
+    private final CategoryRepository categoryRepository;
+    private final ImageWordRepository imageWordRepository;
+    private final int maxEntries;
+
+    private final LongLongHashMap childProfileUsers = new LongLongHashMap();
+    private final LongLongHashMap categoryChildProfiles = new LongLongHashMap();
+    private final LongLongHashMap imageWordCategories = new LongLongHashMap();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Counts deletions, so a mapping loaded while its row was deleted isn't kept; guarded by the lock
+    private long deletions;
+
+    public OwnershipIndex(ChildProfileRepository childProfileRepository, CategoryRepository categoryRepository,
+                          ImageWordRepository imageWordRepository,
+                          @Value("${auth.ownership.max-entries:1000000}") int maxEntries) {
+        this.childProfileRepository = childProfileRepository;
+        this.categoryRepository = categoryRepository;
+        this.imageWordRepository = imageWordRepository;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Checks whether a row belongs to a user.
+     *
+     * @param userId The ID of the user.
+     * @param type The type of the row.
+     * @param id The ID of the row.
+     * @return True if the row exists and belongs to the user.
+     */
+    public boolean isOwner(long userId, Type type, long id) {
+        long imageWordId = NONE;
+        long categoryId = NONE;
+        long childProfileId;
+        switch (type) {
+            case CHILD_PROFILE -> childProfileId = id;
+            case CATEGORY -> {
+                categoryId = id;
+                childProfileId = childProfileOfCategory(categoryId);
+            }
+            case IMAGE_WORD -> {
+                imageWordId = id;
+                categoryId = parentOf(imageWordCategories, imageWordId, imageWordRepository::findCategoryIdById);
+                childProfileId = childProfileOfCategory(categoryId);
+            }
+            default -> throw new IllegalArgumentException("Unknown type: " + type);
+        }
+        long ownerId = parentOf(childProfileUsers, childProfileId, childProfileRepository::findUserIdById);
+        if (ownerId == NONE && (imageWordId != NONE || categoryId != NONE)) {
+            forget(imageWordId, categoryId);
+        }
+        return ownerId != NONE && ownerId == userId;
+    }
+
+    /**
+     * Applies a committed creation or deletion.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOwnershipChanged(OwnershipChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.parentId() != null) {
+                putLocked(map(event.type()), event.id(), event.parentId());
+                return;
+            }
+            deletions++;
+            map(event.type()).remove(event.id());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long childProfileOfCategory(long categoryId) {
+        return parentOf(categoryChildProfiles, categoryId, categoryRepository::findChildProfileIdById);
+    }
+
+    /**
+     * Looks up the parent of a row, loading it on a miss.
+     *
+     * @return The parent ID, or {@link #NONE} if the row doesn't exist.
+     */
+    private long parentOf(LongLongHashMap parents, long id, Function<Long, Optional<Long>> loader) {
+        if (id <= 0) {
+            return NONE;
+        }
+        long seenDeletions;
+        lock.readLock().lock();
+        try {
+            long parent = parents.get(id, NONE);
+            if (parent != NONE) {
+                return parent;
+            }
+            seenDeletions = deletions;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Optional<Long> loaded = loader.apply(id);
+        if (loaded.isEmpty()) {
+            return NONE;
+        }
+        lock.writeLock().lock();
+        try {
+            // A deletion that committed after the query may have removed this row already
+            if (deletions == seenDeletions) {
+                putLocked(parents, id, loaded.get());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return loaded.get();
+    }
+
+    private void putLocked(LongLongHashMap parents, long id, long parentId) {
+        if (parents.size() >= maxEntries) {
+            parents.clear();
+        }
+        parents.put(id, parentId);
+    }
+
+    /**
+     * Drops the mappings of rows whose child profile no longer exists; rows are never moved,
+     * so they have been deleted with it.
+     */
+    private void forget(long imageWordId, long categoryId) {
+        lock.writeLock().lock();
+        try {
+            if (imageWordId != NONE) {
+                imageWordCategories.remove(imageWordId);
+            }
+            if (categoryId != NONE) {
+                categoryChildProfiles.remove(categoryId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private LongLongHashMap map(Type type) {
+        return switch (type) {
+            case CHILD_PROFILE -> childProfileUsers;
+            case CATEGORY -> categoryChildProfiles;
+            case IMAGE_WORD -> imageWordCategories;
+        };
+    }
+}
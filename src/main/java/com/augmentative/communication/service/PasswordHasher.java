@@ -0,0 +1,109 @@
+package com.augmentative.communication.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt hashing and verification on a small dedicated pool, so a burst of logins can
+ * only use a bounded share of the CPU and request threads stay free for board reads. The pool's
+ * queue is bounded too: when it's full, new work is rejected immediately with a
+ * {@link RejectedExecutionException} (reported to clients as 503) instead of piling up.
+ */
+@Service
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ExecutorService hashingPool;
+    private final Duration timeout;
+    private final Timer queueTimer;
+    private final Timer hashTimer;
+    // A real BCrypt hash, verified for unknown usernames so they take as long as known ones
+    private final String dummyHash;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+                          @Value("${auth.hashing.threads:0}") int threads,
+                          @Value("${auth.hashing.queue-size:64}") int queueSize,
+                          @Value("${auth.hashing.timeout:10s}") Duration timeout) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeout = timeout;
+        // By default half the cores, leaving the rest to serve requests
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.hashingPool = ExecutorServiceMetrics.monitor(meterRegistry, executor, "password-hashing");
+        this.queueTimer = Timer.builder("auth.password.queue").description("Time password work waits for a hashing thread").register(meterRegistry);
+        this.hashTimer = Timer.builder("auth.password.hash").description("Time spent hashing or verifying a password").register(meterRegistry);
+        this.dummyHash = passwordEncoder.encode("dummy-password");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdown();
+    }
+
+    /**
+     * Hashes a password for storage.
+     *
+     * @throws RejectedExecutionException If the hashing pool is saturated.
+     */
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Checks a password against a stored hash. A null hash (unknown user) is checked against
+     * a dummy hash and never matches.
+     *
+     * @throws RejectedExecutionException If the hashing pool is saturated.
+     */
+    public boolean matches(String rawPassword, String passwordHash) {
+        if (passwordHash == null) {
+            run(() -> passwordEncoder.matches(rawPassword, dummyHash));
+            return false;
+        }
+        return run(() -> passwordEncoder.matches(rawPassword, passwordHash));
+    }
+
+    private <T> T run(Callable<T> work) {
+        long submittedAt = System.nanoTime();
+        Future<T> result = hashingPool.submit(() -> {
+            queueTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            return hashTimer.recordCallable(work);
+        });
+        try {
+            return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new RejectedExecutionException("Password hashing timed out.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for password hashing.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed.", e.getCause());
+        }
+    }
+}
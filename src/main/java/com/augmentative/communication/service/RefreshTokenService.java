@@ -0,0 +1,134 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.model.RefreshToken;
+import com.augmentative.communication.model.User;
+import com.augmentative.communication.repository.RefreshTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Issues and rotates refresh tokens, so clients can get new short-lived access tokens
+ * without sending the password (and paying for a BCrypt check) again.
+ *
+ * A refresh token is 256 random bits, so it's stored as a plain SHA-256 digest: a slow
+ * password hash adds nothing against guessing, and the digest can be looked up by index.
+ * Every refresh marks the presented token used and issues the next one in its family.
+ * A used token presented again means it was copied, so the whole family is revoked and
+ * both the thief and the real client have to sign in again.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${jwt.refresh-token.time-to-live:30d}")
+    private Duration timeToLive;
+
+    /**
+     * The result of a refresh.
+     *
+     * @param user The user the token belongs to.
+     * @param refreshToken The new refresh token, replacing the presented one.
+     */
+    public record Rotation(User user, String refreshToken) {
+    }
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository) {
+        this.refreshTokenRepository = refreshTokenRepository;
+    }
+
+    /**
+     * Issues the first refresh token of a new family, at login.
+     *
+     * @param user The signed in user.
+     * @return The refresh token to send to the client.
+     */
+    @Transactional
+    public String issue(User user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchanges a refresh token for the next one in its family.
+     *
+     * @param refreshToken The refresh token sent by the client.
+     * @return The user and the new refresh token, or empty if the token is unknown, expired or reused.
+     */
+    @Transactional
+    public Optional<Rotation> rotate(String refreshToken) {
+        Optional<RefreshToken> stored = refreshTokenRepository.findByTokenHashForUpdate(digest(refreshToken));
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+        RefreshToken token = stored.get();
+        if (token.isUsed()) {
+            refreshTokenRepository.deleteAllByFamilyId(token.getFamilyId());
+            System.out.println("Refresh token reused, revoked token family " + token.getFamilyId());
+            return Optional.empty();
+        }
+        if (token.getExpiresAt().isBefore(Instant.now())) {
+            return Optional.empty();
+        }
+        token.setUsed(true);
+        return Optional.of(new Rotation(token.getUser(), issue(token.getUser(), token.getFamilyId())));
+    }
+
+    /**
+     * Revokes the family of a refresh token, signing out the device that holds it.
+     */
+    @Transactional
+    public void revokeFamily(String refreshToken) {
+        refreshTokenRepository.findByTokenHashForUpdate(digest(refreshToken))
+                .ifPresent(token -> refreshTokenRepository.deleteAllByFamilyId(token.getFamilyId()));
+    }
+
+    /**
+     * Revokes every refresh token of a user.
+     */
+    @Transactional
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.deleteAllByUserId(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-token.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteAllExpired(Instant.now());
+        if (deleted > 0) {
+            System.out.println("Deleted " + deleted + " expired refresh tokens.");
+        }
+    }
+
+    private String issue(User user, String familyId) {
+        byte[] random = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(random);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        refreshTokenRepository.save(new RefreshToken(user, digest(token), familyId, Instant.now().plus(timeToLive)));
+        return token;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+}
@@ -0,0 +1,552 @@
+package com.augmentative.communication.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Packs images into large append-only segment files instead of one file per image,
+ * in the spirit of Facebook's Haystack. Board pictures are small, so this saves
+ * inodes and disk blocks and turns a backup into copying a handful of large files.
+ *
+ * Each image is stored as a "needle": a fixed header (magic, flags, name length,
+ * data length, CRC32, write time), the filename and the image bytes. An in-memory index
+ * maps filenames to needle locations, so a read is two positioned reads, the image bytes
+ * going straight into the array that is served. Deleting
+ * sets the deleted flag of the needle in place; {@link #compact()} later copies the
+ * live needles of mostly-dead segments to the active segment and removes the old file.
+ *
+ * The index is persisted periodically to a snapshot file. On startup the snapshot is
+ * loaded and only the segment tails written after it are scanned. Deletions made
+ * after the snapshot are caught when the needle's flag is checked on read.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage-backend", havingValue = "segment")
+public class SegmentImageStore implements ImageStore {
+
+    private static final int MAGIC = 0x494D4732; // "IMG2"
+    // Needles of the first format had no write time
+    private static final int OLD_MAGIC = 0x494D4731; // "IMG1"
+    private static final byte FLAG_LIVE = 0;
+    private static final byte FLAG_DELETED = 1;
+    // magic (4) + flags (1) + name length (2) + data length (4) + crc32 (4) + written at, epoch millis (8)
+    private static final int HEADER_SIZE = 23;
+    private static final int FLAGS_OFFSET = 4;
+    private static final int NAME_LENGTH_OFFSET = 5;
+    private static final int DATA_LENGTH_OFFSET = 7;
+    private static final int CRC_OFFSET = 11;
+    private static final int WRITTEN_AT_OFFSET = 15;
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final String SNAPSHOT_FILE = "index.snapshot";
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Value("${file.segment.max-size:268435456}")
+    private long maxSegmentSize;
+
+    @Value("${file.segment.compaction-threshold:0.4}")
+    private double compactionThreshold;
+
+    private final ConcurrentHashMap<String, Needle> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    // Guards appends to the active segment and keeps the index consistent with segment sizes
+    private final Object appendLock = new Object();
+    private volatile Segment active;
+    private Path segmentDir;
+
+    /**
+     * Location of a stored image inside a segment file, and when the image was first written.
+     * Compaction moves the needle but keeps its write time.
+     */
+    record Needle(int segmentId, long offset, int nameLength, int dataLength, long writtenAt) {
+        long size() {
+            return HEADER_SIZE + nameLength + dataLength;
+        }
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        segmentDir = Paths.get(uploadDir).resolve("segments");
+        Files.createDirectories(segmentDir);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(segmentDir, "segment-*.dat")) {
+            for (Path path : files) {
+                Segment segment = Segment.open(path);
+                segments.put(segment.id, segment);
+            }
+        }
+
+        Map<Integer, Long> scannedUpTo = loadSnapshot();
+        for (Segment segment : segments.values()) {
+            scan(segment, scannedUpTo.getOrDefault(segment.id, 0L));
+        }
+
+        active = segments.isEmpty() ? createSegment(1) : segments.lastEntry().getValue();
+        System.out.println("Segment image store opened with " + segments.size()
+                + " segments and " + index.size() + " images.");
+    }
+
+    @PreDestroy
+    public void close() {
+        writeSnapshot();
+        segments.values().forEach(Segment::retire);
+    }
+
+    @Override
+    public void write(String filename, Path source) throws IOException {
+        byte[] name = filename.getBytes(StandardCharsets.UTF_8);
+        if (name.length > Short.MAX_VALUE) {
+            throw new IOException("Image name too long: " + filename);
+        }
+        long dataLength = Files.size(source);
+        if (dataLength > Integer.MAX_VALUE - HEADER_SIZE - name.length) {
+            throw new IOException("Image too large: " + filename);
+        }
+        // The header goes first, so the checksum takes a pass over the file before it is copied
+        CRC32 crc = new CRC32();
+        try (CheckedInputStream in = new CheckedInputStream(Files.newInputStream(source), crc)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        long writtenAt = System.currentTimeMillis();
+
+        ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE + name.length);
+        head.putInt(MAGIC)
+                .put(FLAG_LIVE)
+                .putShort((short) name.length)
+                .putInt((int) dataLength)
+                .putInt((int) crc.getValue())
+                .putLong(writtenAt)
+                .put(name)
+                .flip();
+
+        try (FileChannel data = FileChannel.open(source, StandardOpenOption.READ)) {
+            synchronized (appendLock) {
+                if (index.containsKey(filename)) {
+                    throw new FileAlreadyExistsException(filename);
+                }
+                index.put(filename, append(head, data, name.length, (int) dataLength, writtenAt));
+            }
+        }
+    }
+
+    @Override
+    public Optional<Resource> read(String filename) throws IOException {
+        // A needle can move to another segment while we read it (compaction), so look it up again on failure
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            Needle needle = index.get(filename);
+            if (needle == null) {
+                return Optional.empty();
+            }
+            Segment segment = segments.get(needle.segmentId());
+            if (segment == null) {
+                continue;
+            }
+            ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE + needle.nameLength());
+            byte[] data = new byte[needle.dataLength()];
+            try {
+                readFully(segment, head, needle.offset());
+                readFully(segment, ByteBuffer.wrap(data), needle.offset() + head.capacity());
+            } catch (ClosedChannelException e) {
+                continue;
+            }
+            if (!isLiveNeedle(head, data, 0, filename, needle)) {
+                // Deleted after the last index snapshot was written
+                index.remove(filename, needle);
+                return Optional.empty();
+            }
+            // Served as is: the array holds exactly the image bytes
+            return Optional.of(new ByteArrayResource(data));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean delete(String filename) throws IOException {
+        Needle needle = index.remove(filename);
+        if (needle == null) {
+            return false;
+        }
+        markDeleted(needle);
+        return true;
+    }
+
+    @Override
+    public Stream<String> list() {
+        return new ArrayList<>(index.keySet()).stream();
+    }
+
+    /**
+     * Returns the write time recorded in the image's needle, which compaction keeps.
+     */
+    @Override
+    public Optional<Instant> lastModified(String filename) {
+        return Optional.ofNullable(index.get(filename)).map(needle -> Instant.ofEpochMilli(needle.writtenAt()));
+    }
+
+    /**
+     * Reclaims the space of deleted images. Every sealed segment whose share of dead
+     * bytes reaches {@code file.segment.compaction-threshold} has its live needles
+     * copied to the active segment and is then removed.
+     */
+    @Scheduled(fixedDelayString = "${file.segment.compaction-interval-ms:600000}",
+            initialDelayString = "${file.segment.compaction-interval-ms:600000}")
+    public void compact() {
+        Map<Integer, Long> liveBytes = new HashMap<>();
+        index.values().forEach(needle -> liveBytes.merge(needle.segmentId(), needle.size(), Long::sum));
+
+        // Only segments sealed before this pass; the ones it fills aren't in liveBytes and would look dead
+        for (Segment segment : new ArrayList<>(segments.headMap(active.id).values())) {
+            long size = segment.size.get();
+            if (size == 0) {
+                continue;
+            }
+            double deadRatio = (double) (size - liveBytes.getOrDefault(segment.id, 0L)) / size;
+            if (deadRatio < compactionThreshold) {
+                continue;
+            }
+            try {
+                compactSegment(segment);
+            } catch (IOException e) {
+                System.err.println("Failed to compact image segment " + segment.id + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Persists the index so the next startup only has to scan what was appended since.
+     */
+    @Scheduled(fixedDelayString = "${file.segment.snapshot-interval-ms:60000}",
+            initialDelayString = "${file.segment.snapshot-interval-ms:60000}")
+    public void writeSnapshot() {
+        Map<Integer, Long> sizes = new HashMap<>();
+        List<Map.Entry<String, Needle>> entries;
+        synchronized (appendLock) {
+            segments.values().forEach(segment -> sizes.put(segment.id, segment.size.get()));
+            entries = new ArrayList<>(index.entrySet());
+        }
+
+        Path snapshot = segmentDir.resolve(SNAPSHOT_FILE);
+        Path temp = segmentDir.resolve(SNAPSHOT_FILE + ".tmp");
+        try {
+            // The recorded sizes are only trustworthy once the bytes below them are on disk
+            for (Segment segment : segments.values()) {
+                segment.channel().force(false);
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(sizes.size());
+                for (Map.Entry<Integer, Long> size : sizes.entrySet()) {
+                    out.writeInt(size.getKey());
+                    out.writeLong(size.getValue());
+                }
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Needle> entry : entries) {
+                    Needle needle = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(needle.segmentId());
+                    out.writeLong(needle.offset());
+                    out.writeInt(needle.nameLength());
+                    out.writeInt(needle.dataLength());
+                    out.writeLong(needle.writtenAt());
+                }
+            }
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write image index snapshot: " + e.getMessage());
+        }
+    }
+
+    private void compactSegment(Segment segment) throws IOException {
+        List<Map.Entry<String, Needle>> entries = index.entrySet().stream()
+                .filter(entry -> entry.getValue().segmentId() == segment.id)
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                .toList();
+
+        for (Map.Entry<String, Needle> entry : entries) {
+            String filename = entry.getKey();
+            Needle needle = entry.getValue();
+            ByteBuffer buffer = ByteBuffer.allocate((int) needle.size());
+            readFully(segment, buffer, needle.offset());
+            if (!isLiveNeedle(buffer, buffer.array(), HEADER_SIZE + needle.nameLength(), filename, needle)) {
+                index.remove(filename, needle);
+                continue;
+            }
+            buffer.rewind();
+            synchronized (appendLock) {
+                Needle moved = append(buffer, null, needle.nameLength(), needle.dataLength(), needle.writtenAt());
+                if (!index.replace(filename, needle, moved)) {
+                    // Deleted while we were copying it
+                    markDeleted(moved);
+                }
+            }
+        }
+
+        segments.remove(segment.id);
+        segment.retire();
+        Files.deleteIfExists(segment.path);
+        System.out.println("Compacted image segment " + segment.id + ", moved " + entries.size() + " images.");
+    }
+
+    /**
+     * Appends a needle to the active segment, rolling over to a new segment when full.
+     * Must be called while holding {@link #appendLock}.
+     *
+     * @param head The header and name, or the whole needle if {@code data} is null.
+     * @param data The image bytes, copied from the channel's current position, or null.
+     */
+    private Needle append(ByteBuffer head, FileChannel data, int nameLength, int dataLength, long writtenAt) throws IOException {
+        long needleSize = head.remaining() + (data == null ? 0 : dataLength);
+        if (active.size.get() > 0 && active.size.get() + needleSize > maxSegmentSize) {
+            active = createSegment(active.id + 1);
+        }
+        long offset = active.size.get();
+        FileChannel channel = active.channel();
+        long position = offset;
+        while (head.hasRemaining()) {
+            position += channel.write(head, position);
+        }
+        long end = offset + needleSize;
+        while (position < end) {
+            long copied = channel.transferFrom(data, position, end - position);
+            if (copied <= 0) {
+                throw new EOFException("Image file ended before " + dataLength + " bytes were stored.");
+            }
+            position += copied;
+        }
+        active.size.addAndGet(needleSize);
+        return new Needle(active.id, offset, nameLength, dataLength, writtenAt);
+    }
+
+    private static void readFully(Segment segment, ByteBuffer buffer, long position) throws IOException {
+        FileChannel channel = segment.channel();
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Image segment " + segment.id + " is truncated.");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Checks a needle read from disk against its index entry.
+     *
+     * @param head A buffer starting with the needle's header and name.
+     * @param data An array holding the image bytes at {@code dataOffset}.
+     * @return true if the needle is intact and live, false if it has been deleted.
+     * @throws IOException If the needle is corrupt.
+     */
+    private boolean isLiveNeedle(ByteBuffer head, byte[] data, int dataOffset, String filename, Needle needle) throws IOException {
+        if (head.getInt(0) != MAGIC
+                || head.getShort(NAME_LENGTH_OFFSET) != needle.nameLength()
+                || head.getInt(DATA_LENGTH_OFFSET) != needle.dataLength()) {
+            throw new IOException("Corrupt image needle for " + filename);
+        }
+        if (head.get(FLAGS_OFFSET) != FLAG_LIVE) {
+            return false;
+        }
+        String storedName = new String(head.array(), HEADER_SIZE, needle.nameLength(), StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(data, dataOffset, needle.dataLength());
+        if (!storedName.equals(filename) || head.getInt(CRC_OFFSET) != (int) crc.getValue()) {
+            throw new IOException("Corrupt image needle for " + filename);
+        }
+        return true;
+    }
+
+    private void markDeleted(Needle needle) throws IOException {
+        Segment segment = segments.get(needle.segmentId());
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.channel().write(ByteBuffer.wrap(new byte[]{FLAG_DELETED}), needle.offset() + FLAGS_OFFSET);
+        } catch (ClosedChannelException e) {
+            // The segment was compacted away, nothing left to flag
+        }
+    }
+
+    /**
+     * Rebuilds the index from a segment, starting at the given position. A needle that was
+     * only partly written (crash during append) ends the scan and is truncated away.
+     */
+    private void scan(Segment segment, long from) throws IOException {
+        FileChannel channel = segment.channel();
+        long fileSize = channel.size();
+        long position = Math.min(from, fileSize);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        while (position + HEADER_SIZE <= fileSize) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            if (header.getInt(0) == OLD_MAGIC) {
+                // Refuse to start rather than truncate images that are only in an older format
+                throw new IOException("Image segment " + segment.id + " was written in an older format without write times.");
+            }
+            if (header.getInt(0) != MAGIC) {
+                break;
+            }
+            int nameLength = header.getShort(NAME_LENGTH_OFFSET);
+            int dataLength = header.getInt(DATA_LENGTH_OFFSET);
+            Needle needle = new Needle(segment.id, position, nameLength, dataLength, header.getLong(WRITTEN_AT_OFFSET));
+            if (nameLength < 0 || dataLength < 0 || position + needle.size() > fileSize) {
+                break;
+            }
+
+            ByteBuffer name = ByteBuffer.allocate(nameLength);
+            channel.read(name, position + HEADER_SIZE);
+            String filename = new String(name.array(), StandardCharsets.UTF_8);
+            if (header.get(FLAGS_OFFSET) == FLAG_LIVE) {
+                Needle previous = index.put(filename, needle);
+                if (previous != null && !previous.equals(needle)) {
+                    // Left behind by a compaction that was interrupted before removing the old segment
+                    markDeleted(previous);
+                }
+            } else {
+                index.remove(filename, needle);
+            }
+            position += needle.size();
+        }
+
+        if (position < fileSize) {
+            System.err.println("Truncating incomplete image segment " + segment.id + " at " + position);
+            channel.truncate(position);
+        }
+        segment.size.set(position);
+    }
+
+    private Map<Integer, Long> loadSnapshot() {
+        Map<Integer, Long> scannedUpTo = new HashMap<>();
+        Path snapshot = segmentDir.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) {
+            return scannedUpTo;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                return scannedUpTo;
+            }
+            int segmentCount = in.readInt();
+            for (int i = 0; i < segmentCount; i++) {
+                scannedUpTo.put(in.readInt(), in.readLong());
+            }
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String filename = in.readUTF();
+                Needle needle = new Needle(in.readInt(), in.readLong(), in.readInt(), in.readInt(), in.readLong());
+                if (segments.containsKey(needle.segmentId())) {
+                    index.put(filename, needle);
+                }
+            }
+            scannedUpTo.keySet().retainAll(segments.keySet());
+            return scannedUpTo;
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable image index snapshot, rescanning segments: " + e.getMessage());
+            index.clear();
+            return new HashMap<>();
+        }
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Segment segment = Segment.open(segmentDir.resolve(String.format("segment-%06d.dat", id)));
+        segments.put(segment.id, segment);
+        return segment;
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final AtomicLong size = new AtomicLong();
+        private volatile FileChannel channel;
+        private volatile boolean retired;
+
+        private Segment(int id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+
+        static Segment open(Path path) throws IOException {
+            String name = path.getFileName().toString();
+            int id = Integer.parseInt(name.substring("segment-".length(), name.length() - ".dat".length()));
+            return new Segment(id, path, openChannel(path));
+        }
+
+        /**
+         * Returns the open channel. An interrupted reader closes a FileChannel for everyone,
+         * so a closed channel is reopened unless the segment has been compacted away.
+         */
+        FileChannel channel() throws IOException {
+            FileChannel current = channel;
+            if (current.isOpen()) {
+                return current;
+            }
+            synchronized (this) {
+                if (retired) {
+                    throw new ClosedChannelException();
+                }
+                if (!channel.isOpen()) {
+                    try {
+                        channel = openChannel(path);
+                    } catch (NoSuchFileException e) {
+                        throw new ClosedChannelException();
+                    }
+                }
+                return channel;
+            }
+        }
+
+        synchronized void retire() {
+            retired = true;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close image segment " + id + ": " + e.getMessage());
+            }
+        }
+
+        private static FileChannel openChannel(Path path) throws IOException {
+            return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+    }
+}
@@ -2,12 +2,13 @@ package com.augmentative.communication.service;
 
 import com.augmentative.communication.model.User;
 import com.augmentative.communication.repository.UserRepository;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Custom implementation of Spring Security's UserDetailsService.
@@ -27,12 +28,18 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
-        // For simplicity, we are granting a generic "USER" role.
-        // In a real application, you might have more granular roles/authorities.
         return new org.springframework.security.core.userdetails.User(
                 user.getUsername(),
                 user.getPasswordHash(),
-                new ArrayList<>() // No specific roles/authorities for now
+                authoritiesOf(user)
         );
     }
+
+    /**
+     * Returns the authorities granted to a user.
+     * In a real application, you might have more granular roles/authorities.
+     */
+    public static List<GrantedAuthority> authoritiesOf(User user) {
+        return List.of(); // No specific roles/authorities for now
+    }
 }
\ No newline at end of file
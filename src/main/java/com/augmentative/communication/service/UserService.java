@@ -1,14 +1,26 @@
 package com.augmentative.communication.service;
 
+import com.augmentative.communication.dto.AuthenticatedUser;
 import com.augmentative.communication.dto.ChildProfileDTO;
+import com.augmentative.communication.dto.LoginResponse;
 import com.augmentative.communication.dto.UserDTO;
+import com.augmentative.communication.event.UserChangedEvent;
 import com.augmentative.communication.model.User;
 import com.augmentative.communication.repository.UserRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.augmentative.communication.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 /**
  * Service class for managing User entities.
@@ -19,13 +31,21 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final ChildProfileService childProfileService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final RefreshTokenService refreshTokenService;
+    private final JwtUtil jwtUtil;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, ChildProfileService
-            childProfileService) {
+    public UserService(UserRepository userRepository, PasswordHasher passwordHasher, RefreshTokenService refreshTokenService, ChildProfileService
+            childProfileService, JwtUtil jwtUtil, ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
+        this.refreshTokenService = refreshTokenService;
         this.childProfileService = childProfileService;
+        this.jwtUtil = jwtUtil;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
     }
 
     public Optional<UserDTO> findById(Long id) {
@@ -39,14 +59,90 @@ public class UserService {
     public UserDTO save(UserDTO userDTO) {
         User user = userDTO.toEntity();
         // Hash the password before saving
-        user.setPasswordHash(passwordEncoder.encode(userDTO.getPasswordHash()));
+        user.setPasswordHash(passwordHasher.encode(userDTO.getPasswordHash()));
         User savedUser = userRepository.save(user);
 
         return UserDTO.fromEntity(savedUser);
     }
 
+    /**
+     * Signs a user in: one user lookup, password verification on the hashing pool, a token,
+     * and the initial profile for first-time users. Each stage is timed as
+     * {@code auth.login.stage} tagged with its name.
+     *
+     * @param username The username.
+     * @param password The password.
+     * @return The token and user ID, or empty if the credentials are wrong.
+     * @throws RejectedExecutionException If the hashing pool is saturated; the client should retry later.
+     */
+    public Optional<LoginResponse> login(String username, String password) {
+        Optional<User> user = timeStage("lookup", () -> userRepository.findByUsername(username));
+        boolean matches;
+        try {
+            matches = timeStage("verify", () -> passwordHasher.matches(password, user.map(User::getPasswordHash).orElse(null)));
+        } catch (RejectedExecutionException e) {
+            meterRegistry.counter("auth.login.attempts", "outcome", "rejected").increment();
+            throw e;
+        }
+        if (user.isEmpty() || !matches) {
+            meterRegistry.counter("auth.login.attempts", "outcome", "failure").increment();
+            return Optional.empty();
+        }
+
+        User signedIn = user.get();
+        LoginResponse response = timeStage("token", () -> issueTokens(signedIn, refreshTokenService.issue(signedIn)));
+        // Sign the user in for the rest of this request, so the seeding below passes the services' authorization checks
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                new AuthenticatedUser(signedIn.getId(), signedIn.getUsername()), null, UserDetailsServiceImpl.authoritiesOf(signedIn)));
+        // Seed initial profile if none exist for this user
+        timeStage("seed", () -> {
+            seedInitialChildProfile(signedIn.getId());
+            return null;
+        });
+        meterRegistry.counter("auth.login.attempts", "outcome", "success").increment();
+        return Optional.of(response);
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and refresh token. No password is
+     * involved, so this costs a digest lookup and a signature, not a BCrypt check.
+     *
+     * @param refreshToken The refresh token sent by the client.
+     * @return The new tokens, or empty if the refresh token is unknown, expired or reused.
+     */
+    @Transactional
+    public Optional<LoginResponse> refresh(String refreshToken) {
+        return refreshTokenService.rotate(refreshToken)
+                .map(rotation -> issueTokens(rotation.user(), rotation.refreshToken()));
+    }
+
+    /**
+     * Signs out the device holding a refresh token. Its current access token stays valid until it expires.
+     */
+    public void logout(String refreshToken) {
+        refreshTokenService.revokeFamily(refreshToken);
+    }
+
+    @Transactional
     public void deleteById(Long id) {
+        refreshTokenService.revokeAll(id);
         userRepository.deleteById(id);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
+    }
+
+    /**
+     * Revokes all tokens issued to a user so far, e.g. to sign out of every device.
+     *
+     * @param id The ID of the user.
+     * @throws RuntimeException If the user doesn't exist.
+     */
+    @Transactional
+    public void revokeTokens(Long id) {
+        if (userRepository.incrementTokenVersion(id) == 0) {
+            throw new RuntimeException("User not found with ID: " + id);
+        }
+        refreshTokenService.revokeAll(id);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
     }
 
     public void seedInitialChildProfile(Long userId) {
@@ -62,4 +158,18 @@ public class UserService {
             System.out.println("Seeded child profile: " + savedChildProfile.getName());
         }
     }
-}
\ No newline at end of file
+
+    private LoginResponse issueTokens(User user, String refreshToken) {
+        String accessToken = jwtUtil.generateToken(user.getUsername(), user.getId(), user.getTokenVersion(),
+                UserDetailsServiceImpl.authoritiesOf(user).stream().map(GrantedAuthority::getAuthority).toList());
+        return new LoginResponse(accessToken, user.getId(), refreshToken, jwtUtil.getAccessTokenTimeToLive().toSeconds());
+    }
+
+    private <T> T timeStage(String stage, Supplier<T> work) {
+        return Timer.builder("auth.login.stage")
+                .description("Time spent in each stage of a login")
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .record(work);
+    }
+}
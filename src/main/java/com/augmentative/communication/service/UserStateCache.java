@@ -0,0 +1,59 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.event.UserChangedEvent;
+import com.augmentative.communication.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * Holds the current token version of recently active users, so checking whether a token
+ * has been revoked doesn't need a query per request. Entries are dropped when a
+ * {@link UserChangedEvent} commits and reloaded on the next request; they also expire after
+ * {@code auth.user-state.time-to-live}, which bounds how long another instance of the
+ * application keeps accepting a revoked token.
+ */
+@Service
+public class UserStateCache {
+
+    // Cached for users that don't exist anymore
+    private static final int DELETED = -1;
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Integer> tokenVersions;
+
+    public UserStateCache(UserRepository userRepository,
+                          @Value("${auth.user-state.max-size:10000}") long maxSize,
+                          @Value("${auth.user-state.time-to-live:5m}") Duration timeToLive) {
+        this.userRepository = userRepository;
+        this.tokenVersions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    /**
+     * Checks that a token was issued for the user's current token version.
+     *
+     * @param userId The user ID from the token.
+     * @param tokenVersion The token version from the token.
+     * @return True if the user exists and the token hasn't been revoked.
+     */
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        int current = tokenVersions.get(userId, id -> userRepository.findTokenVersionById(id).orElse(DELETED));
+        return current != DELETED && current == tokenVersion;
+    }
+
+    // Before other listeners, e.g. DeviceWebSocketHandler, so they see the new token version
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onUserChanged(UserChangedEvent event) {
+        tokenVersions.invalidate(event.userId());
+    }
+}
@@ -0,0 +1,239 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.dto.BoardRow;
+import com.augmentative.communication.dto.VocabularyMatchDTO;
+import com.augmentative.communication.event.ImageWordChangedEvent;
+import com.augmentative.communication.model.ImageWord;
+import com.augmentative.communication.repository.CategoryRepository;
+import com.augmentative.communication.repository.ImageWordRepository;
+import com.augmentative.communication.util.VocabularyTrie;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Searches a child profile's image+words by word, so a tablet doesn't have to download and scan
+ * the whole board. Each searched profile gets an in-memory {@link VocabularyTrie} over the
+ * folded terms of its words; it's built on the first search and then kept up to date with the
+ * {@link ImageWordChangedEvent}s of committed writes, one image+word at a time.
+ *
+ * Query terms match as prefixes of the words' terms and tolerate typos: none for terms of up
+ * to 3 letters, one up to 6 letters, two above that. A multi-term query matches image+words
+ * that contain all of its terms. Indexes of profiles that aren't searched expire.
+ */
+@Service
+public class VocabularySearchService {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    private final CategoryRepository categoryRepository;
+    private final ImageWordRepository imageWordRepository;
+    private final Cache<Long, ProfileIndex> indexes;
+    // Counts applied changes, so an index built while a write committed isn't kept
+    private final AtomicLong changes = new AtomicLong();
+
+    /**
+     * An indexed image+word.
+     */
+    private record Entry(long id, long categoryId, String word, String imageUrl) {
+    }
+
+    /**
+     * A candidate result: how well one image+word matched the query terms seen so far.
+     */
+    private static final class Hit {
+        int lastTerm = -1;
+        int termScore;
+        int previousTermsScore;
+
+        /**
+         * Records a match of query term {@code term}. Terms are searched in order, so an
+         * image+word that missed an earlier term can't match the whole query anymore.
+         */
+        void match(int term, int score) {
+            if (term == lastTerm) {
+                termScore = Math.min(termScore, score);
+            } else if (term == lastTerm + 1) {
+                previousTermsScore += termScore;
+                termScore = score;
+                lastTerm = term;
+            }
+        }
+
+        int score() {
+            return previousTermsScore + termScore;
+        }
+    }
+
+    /**
+     * The index of one child profile.
+     */
+    private static final class ProfileIndex {
+        private final VocabularyTrie trie = new VocabularyTrie();
+        private final Map<Long, Entry> entries = new HashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        void put(Entry entry) {
+            lock.writeLock().lock();
+            try {
+                removeLocked(entry.id());
+                entries.put(entry.id(), entry);
+                for (String term : VocabularyTrie.terms(entry.word())) {
+                    trie.add(term, entry.id());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(long id) {
+            lock.writeLock().lock();
+            try {
+                removeLocked(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void removeLocked(long id) {
+            Entry previous = entries.remove(id);
+            if (previous != null) {
+                for (String term : VocabularyTrie.terms(previous.word())) {
+                    trie.remove(term, id);
+                }
+            }
+        }
+
+        List<Entry> search(List<String> queryTerms, int limit) {
+            lock.readLock().lock();
+            try {
+                Map<Long, Hit> hits = new HashMap<>();
+                for (int t = 0; t < queryTerms.size(); t++) {
+                    int termIndex = t;
+                    String term = queryTerms.get(t);
+                    trie.search(term, maxEdits(term), (id, distance, wholeTerm) -> {
+                        Hit hit = termIndex == 0 ? hits.computeIfAbsent(id, key -> new Hit()) : hits.get(id);
+                        if (hit != null) {
+                            hit.match(termIndex, score(distance, wholeTerm));
+                        }
+                    });
+                }
+
+                List<Entry> matches = new ArrayList<>();
+                Map<Long, Integer> scores = new HashMap<>();
+                hits.forEach((id, hit) -> {
+                    if (hit.lastTerm == queryTerms.size() - 1) {
+                        matches.add(entries.get(id));
+                        scores.put(id, hit.score());
+                    }
+                });
+                matches.sort(Comparator.<Entry>comparingInt(entry -> scores.get(entry.id()))
+                        .thenComparingInt(entry -> entry.word().length())
+                        .thenComparing(Entry::word)
+                        .thenComparingLong(Entry::id));
+                return matches.size() > limit ? matches.subList(0, limit) : matches;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    public VocabularySearchService(CategoryRepository categoryRepository, ImageWordRepository imageWordRepository,
+                                   @Value("${search.index.max-profiles:1000}") long maxProfiles,
+                                   @Value("${search.index.idle-expiry:1h}") Duration idleExpiry) {
+        this.categoryRepository = categoryRepository;
+        this.imageWordRepository = imageWordRepository;
+        this.indexes = Caffeine.newBuilder()
+                .maximumSize(maxProfiles)
+                .expireAfterAccess(idleExpiry)
+                .build();
+    }
+
+    /**
+     * Finds a child profile's image+words matching a query, best matches first.
+     *
+     * @param childProfileId The ID of the child profile.
+     * @param query The text typed by the user.
+     * @param limit The maximum number of results, capped at {@link #MAX_LIMIT}.
+     * @return The matching image+words.
+     */
+    @PreAuthorize("isAuthenticated()")
+    public List<VocabularyMatchDTO> search(Long childProfileId, String query, int limit) {
+        List<String> queryTerms = VocabularyTrie.terms(query);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        return index(childProfileId).search(queryTerms, Math.max(1, Math.min(limit, MAX_LIMIT)))
+                .stream()
+                .map(entry -> new VocabularyMatchDTO(entry.id(), entry.word(), entry.imageUrl(), entry.categoryId()))
+                .toList();
+    }
+
+    /**
+     * Applies a committed image+word change to the profile's index, if it has one.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageWordChanged(ImageWordChangedEvent event) {
+        changes.incrementAndGet();
+        ProfileIndex index = indexes.getIfPresent(event.childProfileId());
+        if (index == null) {
+            return;
+        }
+        if (event.imageWordId() == null) {
+            indexes.invalidate(event.childProfileId());
+            return;
+        }
+        imageWordRepository.findById(event.imageWordId()).ifPresentOrElse(
+                imageWord -> index.put(toEntry(imageWord)),
+                () -> index.remove(event.imageWordId()));
+    }
+
+    private ProfileIndex index(Long childProfileId) {
+        ProfileIndex index = indexes.getIfPresent(childProfileId);
+        if (index != null) {
+            return index;
+        }
+        long seenChanges = changes.get();
+        ProfileIndex built = new ProfileIndex();
+        for (BoardRow row : categoryRepository.findBoardRows(childProfileId)) {
+            if (row.imageWordId() != null) {
+                built.put(new Entry(row.imageWordId(), row.categoryId(), row.word(), row.imageWordImageUrl()));
+            }
+        }
+        indexes.put(childProfileId, built);
+        // A change that committed while the rows were read may have missed the new index
+        if (changes.get() != seenChanges) {
+            indexes.invalidate(childProfileId);
+        }
+        return built;
+    }
+
+    private static Entry toEntry(ImageWord imageWord) {
+        return new Entry(imageWord.getId(), imageWord.getCategory().getId(), imageWord.getWord(), imageWord.getImageUrl());
+    }
+
+    private static int maxEdits(String term) {
+        return term.length() <= 3 ? 0 : term.length() <= 6 ? 1 : 2;
+    }
+
+    /**
+     * Lower is better: each typo costs 2, matching only the start of a term costs 1.
+     */
+    private static int score(int distance, boolean wholeTerm) {
+        return distance * 2 + (wholeTerm ? 0 : 1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.augmentative.communication.util;
+
+import com.augmentative.communication.dto.BoardChangeDTO;
+import com.augmentative.communication.dto.BoardDTO;
+import com.augmentative.communication.dto.CategoryDTO;
+import com.augmentative.communication.dto.ImageWordDTO;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Computes the changes between two versions of a board, so devices get what a parent edited
+ * instead of the whole board again. Changes are listed in an order that can be applied one by
+ * one: additions and edits, then removals, then the new orders of the lists that changed.
+ */
+public final class BoardDiff {
+
+    private BoardDiff() {
+    }
+
+    public static List<BoardChangeDTO> between(BoardDTO before, BoardDTO after) {
+        Map<Long, CategoryDTO> oldCategories = byId(before.getCategories());
+        Map<Long, CategoryDTO> newCategories = byId(after.getCategories());
+        List<BoardChangeDTO> upserts = new ArrayList<>();
+        List<BoardChangeDTO> removals = new ArrayList<>();
+        List<BoardChangeDTO> orders = new ArrayList<>();
+
+        for (CategoryDTO category : newCategories.values()) {
+            CategoryDTO old = oldCategories.get(category.getId());
+            if (old == null || !Objects.equals(old.getName(), category.getName())
+                    || !Objects.equals(old.getImageUrl(), category.getImageUrl())) {
+                upserts.add(BoardChangeDTO.category(new CategoryDTO(category.getId(), category.getName(), category.getImageUrl())));
+            }
+            diffItems(category.getId(), old != null ? items(old) : List.of(), items(category), upserts, removals, orders);
+        }
+        for (CategoryDTO old : oldCategories.values()) {
+            if (!newCategories.containsKey(old.getId())) {
+                removals.add(BoardChangeDTO.categoryRemoved(old.getId()));
+            }
+        }
+        if (!oldCategories.keySet().stream().toList().equals(newCategories.keySet().stream().toList())) {
+            orders.add(0, BoardChangeDTO.categoryOrder(List.copyOf(newCategories.keySet())));
+        }
+
+        List<BoardChangeDTO> changes = new ArrayList<>(upserts.size() + removals.size() + orders.size());
+        changes.addAll(upserts);
+        changes.addAll(removals);
+        changes.addAll(orders);
+        return changes;
+    }
+
+    private static void diffItems(Long categoryId, List<ImageWordDTO> before, List<ImageWordDTO> after,
+                                  List<BoardChangeDTO> upserts, List<BoardChangeDTO> removals, List<BoardChangeDTO> orders) {
+        Map<Long, ImageWordDTO> oldItems = new LinkedHashMap<>();
+        before.forEach(item -> oldItems.put(item.getId(), item));
+        List<Long> newOrder = new ArrayList<>(after.size());
+        for (ImageWordDTO item : after) {
+            newOrder.add(item.getId());
+            ImageWordDTO old = oldItems.remove(item.getId());
+            if (old == null || !Objects.equals(old.getWord(), item.getWord())
+                    || !Objects.equals(old.getImageUrl(), item.getImageUrl())) {
+                upserts.add(BoardChangeDTO.imageWord(item));
+            }
+        }
+        // Only categories that still exist get here; items of deleted categories go with the category
+        oldItems.keySet().forEach(id -> removals.add(BoardChangeDTO.imageWordRemoved(id, categoryId)));
+        if (!newOrder.equals(before.stream().map(ImageWordDTO::getId).toList())) {
+            orders.add(BoardChangeDTO.imageWordOrder(categoryId, newOrder));
+        }
+    }
+
+    private static Map<Long, CategoryDTO> byId(List<CategoryDTO> categories) {
+        Map<Long, CategoryDTO> byId = new LinkedHashMap<>();
+        categories.forEach(category -> byId.put(category.getId(), category));
+        return byId;
+    }
+
+    private static List<ImageWordDTO> items(CategoryDTO category) {
+        return category.getItems() != null ? category.getItems() : List.of();
+    }
+}
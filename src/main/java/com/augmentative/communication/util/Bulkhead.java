@@ -0,0 +1,225 @@
+package com.augmentative.communication.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Isolates one kind of blocking work (a subprocess, a remote service) from the rest of the
+ * application: at most {@code maxConcurrent} tasks run at a time and at most {@code maxQueued}
+ * wait, anything beyond that is rejected at once with a {@link RejectedExecutionException}.
+ * A slow dependency then fills its own bulkhead instead of the request thread pool.
+ *
+ * Tasks run either on the bulkhead's own platform threads or, when switched on and the JVM
+ * supports it (Java 21+), on virtual threads, which don't tie up an OS thread while blocked.
+ * The mode can be changed at any time; both share one concurrency limit, so tasks started
+ * before a switch still count.
+ *
+ * Metrics, tagged with the bulkhead name: {@code bulkhead.active}, {@code bulkhead.queued},
+ * {@code bulkhead.rejected}, {@code bulkhead.virtual-threads}, the timers
+ * {@code bulkhead.wait} and {@code bulkhead.execution}, and {@code bulkhead.queue.depth},
+ * the number of tasks each admitted task found ahead of it in the queue.
+ */
+public final class Bulkhead {
+
+    // Executors.newVirtualThreadPerTaskExecutor(), looked up reflectively so the code still builds for Java 17
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutorFactory();
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Duration timeout;
+    private final ExecutorService platformThreads;
+    private final ExecutorService virtualThreads;
+    private final Semaphore permits;
+    // Tasks running or waiting for a permit
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Counter rejected;
+    private final DistributionSummary queueDepth;
+    private final Timer waitTimer;
+    private final Timer executionTimer;
+    private volatile boolean useVirtualThreads;
+
+    /**
+     * @param name The name, used for threads and metric tags.
+     * @param maxConcurrent The maximum number of tasks running at once.
+     * @param maxQueued The maximum number of tasks waiting to run.
+     * @param timeout How long a caller waits for a task, including its time in the queue.
+     * @param useVirtualThreads Whether to start in virtual thread mode; ignored if unsupported.
+     */
+    public Bulkhead(String name, int maxConcurrent, int maxQueued, Duration timeout, boolean useVirtualThreads,
+                    MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.timeout = timeout;
+        this.permits = new Semaphore(maxConcurrent);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        // The queue is bounded by the admission count, not by the pool
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bulkhead-" + name + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Idle threads exit, so a pool that isn't used in virtual thread mode costs nothing
+        executor.allowCoreThreadTimeOut(true);
+        this.platformThreads = ExecutorServiceMetrics.monitor(meterRegistry, executor, "bulkhead-" + name);
+        this.virtualThreads = newVirtualThreadExecutor();
+        setUseVirtualThreads(useVirtualThreads);
+
+        Gauge.builder("bulkhead.active", active, AtomicInteger::get).tag("name", name)
+                .description("Tasks running in the bulkhead").register(meterRegistry);
+        Gauge.builder("bulkhead.queued", this, Bulkhead::getQueued).tag("name", name)
+                .description("Tasks waiting to run in the bulkhead").register(meterRegistry);
+        Gauge.builder("bulkhead.virtual-threads", this, bulkhead -> bulkhead.isUsingVirtualThreads() ? 1 : 0).tag("name", name)
+                .description("Whether the bulkhead runs tasks on virtual threads").register(meterRegistry);
+        this.rejected = Counter.builder("bulkhead.rejected").tag("name", name)
+                .description("Tasks rejected because the bulkhead was full").register(meterRegistry);
+        this.queueDepth = DistributionSummary.builder("bulkhead.queue.depth").tag("name", name)
+                .description("Tasks queued ahead of a task when it was submitted").register(meterRegistry);
+        this.waitTimer = Timer.builder("bulkhead.wait").tag("name", name)
+                .description("Time tasks wait for a slot in the bulkhead").register(meterRegistry);
+        this.executionTimer = Timer.builder("bulkhead.execution").tag("name", name)
+                .description("Time tasks run in the bulkhead").register(meterRegistry);
+    }
+
+    /**
+     * Whether this JVM can run tasks on virtual threads.
+     */
+    public static boolean virtualThreadsSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Starts a task in the bulkhead.
+     *
+     * @param task The blocking work.
+     * @return The task's result; fails with a {@link java.util.concurrent.TimeoutException} if it
+     *         doesn't finish within the timeout. The task itself keeps its slot until it returns.
+     * @throws RejectedExecutionException If the bulkhead is full.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        int admittedTasks = admitted.incrementAndGet();
+        if (admittedTasks > maxConcurrent + maxQueued) {
+            admitted.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("Bulkhead " + name + " is full.");
+        }
+        queueDepth.record(Math.max(0, admittedTasks - 1 - maxConcurrent));
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long submittedAt = System.nanoTime();
+        Runnable run = () -> {
+            try {
+                permits.acquire();
+                try {
+                    waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                    active.incrementAndGet();
+                    long startedAt = System.nanoTime();
+                    try {
+                        result.complete(task.call());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    } finally {
+                        executionTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                        active.decrementAndGet();
+                    }
+                } finally {
+                    permits.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            } finally {
+                admitted.decrementAndGet();
+            }
+        };
+        try {
+            (isUsingVirtualThreads() ? virtualThreads : platformThreads).execute(run);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            admitted.decrementAndGet();
+            throw e;
+        }
+        return result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Switches between platform and virtual threads for tasks submitted from now on.
+     *
+     * @return Whether tasks will run on virtual threads; false if the JVM doesn't support them.
+     */
+    public boolean setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads && virtualThreads != null;
+        return this.useVirtualThreads;
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public int getQueued() {
+        return Math.max(0, admitted.get() - active.get());
+    }
+
+    public void shutdown() {
+        platformThreads.shutdown();
+        if (virtualThreads != null) {
+            virtualThreads.shutdown();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Could not create a virtual thread executor: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Method findVirtualThreadExecutorFactory() {
+        try {
+            return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -1,39 +1,153 @@
 package com.augmentative.communication.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
  * Utility class for JSON Web Token (JWT) operations.
  * Handles generation, validation, and extraction of information from JWTs.
+ *
+ * Tokens are verified with one shared, immutable parser. The claims of a verified token are
+ * cached until the token expires, keyed by the SHA-256 digest of the token, so a client that
+ * sends the same token on every request has its signature checked once instead of per request.
+ * Tokens that fail verification aren't cached.
+ *
+ * Metrics: the timer {@code auth.jwt.verify}, tagged with the result ({@code cached},
+ * {@code verified} or {@code rejected}), and the {@code cache.*} metrics of the
+ * {@code jwt-tokens} cache.
  */
 @Component
 public class JwtUtil {
 
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+    public static final String AUTHORITIES_CLAIM = "auth";
+
     // Secret key for signing JWTs. Loaded from application.properties.
     // It's crucial to keep this key secure and not hardcode it in production.
     @Value("${jwt.secret}")
     private String secretString;
+
+    @Value("${jwt.access-token.time-to-live:15m}")
+    private Duration accessTokenTimeToLive;
+
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    private final MeterRegistry meterRegistry;
     private SecretKey secretKey;
+    private JwtParser parser;
+    private Cache<String, Claims> verifiedTokens;
+    private Timer cachedTimer;
+    private Timer verifiedTimer;
+    private Timer rejectedTimer;
+
+    public JwtUtil(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        secretKey = Keys.hmacShaKeyFor(secretString.getBytes());
+        parser = Jwts.parser().verifyWith(secretKey).build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .recordStats()
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt-tokens");
+        cachedTimer = verifyTimer("cached");
+        verifiedTimer = verifyTimer("verified");
+        rejectedTimer = verifyTimer("rejected");
+    }
+
+    private Timer verifyTimer(String result) {
+        return Timer.builder("auth.jwt.verify").tag("result", result)
+                .description("Time spent verifying an access token").register(meterRegistry);
+    }
 
-    // Initialize the secret key from the string value
     private SecretKey getSigningKey() {
-        if (secretKey == null) {
-            secretKey = Keys.hmacShaKeyFor(secretString.getBytes());
-        }
         return secretKey;
     }
 
+    public Duration getAccessTokenTimeToLive() {
+        return accessTokenTimeToLive;
+    }
+
+    /**
+     * Verifies a token's signature and expiration, parsing it at most once while it's cached.
+     *
+     * @param token The JWT token.
+     * @return The token's claims, or empty if the token is malformed, forged or expired.
+     */
+    public Optional<Claims> verify(String token) {
+        long startedAt = System.nanoTime();
+        String digest = digest(token);
+        Timer timer = cachedTimer;
+        Claims claims = verifiedTokens.getIfPresent(digest);
+        if (claims == null) {
+            timer = verifiedTimer;
+            try {
+                claims = parser.parseSignedClaims(token).getPayload();
+            } catch (JwtException | IllegalArgumentException e) {
+                claims = null;
+            }
+            if (claims != null && claims.getExpiration() != null) {
+                verifiedTokens.put(digest, claims);
+            }
+        }
+        // The cache may hold an entry for a moment past its expiry
+        if (claims == null || claims.getExpiration() == null || claims.getExpiration().before(new Date())) {
+            rejectedTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            return Optional.empty();
+        }
+        timer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        return Optional.of(claims);
+    }
+
     /**
      * Extracts the username from a JWT token.
      *
@@ -72,34 +186,27 @@ public class JwtUtil {
      *
      * @param token The JWT token.
      * @return The Claims object containing all claims.
+     * @throws JwtException If the token is invalid or expired.
      */
     private Claims extractAllClaims(String token) {
-        // Changed from parserBuilder() to parser() to avoid potential compatibility issues
-        return Jwts.parser()
-                .setSigningKey(getSigningKey()) // Use the SecretKey directly
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    /**
-     * Checks if the token has expired.
-     *
-     * @param token The JWT token.
-     * @return True if the token is expired, false otherwise.
-     */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return verify(token).orElseThrow(() -> new JwtException("Invalid or expired JWT token."));
     }
 
     /**
-     * Generates a JWT token for a given username.
+     * Generates a JWT token for a user. Besides the username, the token carries the user's ID,
+     * token version and authorities, so requests can be authenticated from the token alone.
      *
      * @param username The username for which to generate the token.
+     * @param userId The user's ID.
+     * @param tokenVersion The user's current token version.
+     * @param authorities The user's authorities.
      * @return The generated JWT token.
      */
-    public String generateToken(String username) {
+    public String generateToken(String username, Long userId, int tokenVersion, Collection<String> authorities) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, userId);
+        claims.put(TOKEN_VERSION_CLAIM, tokenVersion);
+        claims.put(AUTHORITIES_CLAIM, List.copyOf(authorities));
         return createToken(claims, username);
     }
 
@@ -115,7 +222,7 @@ public class JwtUtil {
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 10)) // Token valid for 10 hours
+                .setExpiration(new Date(System.currentTimeMillis() + accessTokenTimeToLive.toMillis())) // Short-lived, renewed with a refresh token
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
@@ -128,7 +235,15 @@ public class JwtUtil {
      * @return True if the token is valid for the given username and not expired, false otherwise.
      */
     public Boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        return verify(token).map(claims -> username.equals(claims.getSubject())).orElse(false);
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,163 @@
+package com.augmentative.communication.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from positive {@code long} keys to {@code long} values, stored in two flat arrays
+ * with open addressing and linear probing. Unlike a {@code HashMap<Long, Long>} it doesn't box
+ * keys or values or allocate an entry per mapping, so a million mappings take about 32 MB
+ * instead of well over 100 MB, and a lookup touches one or two cache lines.
+ *
+ * Key 0 marks an empty slot, which is fine for database IDs. Removal shifts the following
+ * entries back instead of leaving tombstones, so lookups stay short after many removals.
+ *
+ * Not thread safe; callers guard it with a read-write lock.
+ */
+public final class LongLongHashMap {
+
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    public LongLongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of mappings to make room for without resizing.
+     */
+    public LongLongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The value mapped to {@code key}, or {@code missing} if there is none.
+     */
+    public long get(long key, long missing) {
+        if (key <= 0) {
+            return missing;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == EMPTY) {
+                return missing;
+            }
+        }
+    }
+
+    /**
+     * Maps {@code key} to {@code value}, replacing any previous value.
+     *
+     * @throws IllegalArgumentException If the key isn't positive.
+     */
+    public void put(long key, long value) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Keys must be positive: " + key);
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // Keep the load factor at or below 1/2 so probe sequences stay short
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * @return Whether there was a mapping for {@code key}.
+     */
+    public boolean remove(long key) {
+        if (key <= 0) {
+            return false;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == EMPTY) {
+                return false;
+            }
+            if (current == key) {
+                shiftBack(slot);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Closes the gap left at {@code free} by moving back each following entry of the
+     * probe run that would otherwise no longer be reachable from its home slot.
+     */
+    private void shiftBack(int free) {
+        for (int slot = (free + 1) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int home = slot(keys[slot]);
+            // The entry may stay if its home slot lies cyclically within (free, slot]
+            boolean reachable = free <= slot ? free < home && home <= slot : free < home || home <= slot;
+            if (!reachable) {
+                keys[free] = keys[slot];
+                values[free] = values[slot];
+                free = slot;
+            }
+        }
+        keys[free] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != EMPTY) {
+                int slot = slot(key);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(long key) {
+        // Sequence IDs are dense; mixing the bits spreads them over the whole table
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,80 @@
+package com.augmentative.communication.util;
+
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Sparse integer ordering keys for sibling lists (categories of a profile, words of a category).
+ *
+ * New items are appended {@link #STEP} after the last one. A moved item gets the midpoint
+ * between its new neighbours' keys, so a move updates one row. Only when two neighbours have
+ * no key left between them are the siblings renumbered, which is also what the background
+ * rebalancing does for lists whose gaps have become small.
+ */
+public final class OrderKeys {
+
+    public static final int STEP = 1024;
+
+    private OrderKeys() {
+    }
+
+    /**
+     * Returns the key for an item appended after the current last key.
+     *
+     * @param lastKey The largest key among the siblings, or null if there are none.
+     */
+    public static int append(Integer lastKey) {
+        return lastKey == null ? STEP : Math.addExact(lastKey, STEP);
+    }
+
+    /**
+     * Moves an item within its sibling list and gives it a key that keeps the list sorted.
+     *
+     * @param siblings All siblings in their current order, including the item; reordered in place.
+     * @param item The item to move.
+     * @param after The sibling the item is placed after, or null to make it the first one.
+     * @param key Reads an item's key.
+     * @param setKey Sets an item's key.
+     * @return true if the whole list had to be renumbered, false if only the item's key changed.
+     * @throws IllegalArgumentException If {@code after} isn't a sibling or is the item itself.
+     */
+    public static <T> boolean move(List<T> siblings, T item, T after, ToIntFunction<T> key, ObjIntConsumer<T> setKey) {
+        if (item == after) {
+            throw new IllegalArgumentException("An item can't be placed after itself.");
+        }
+        siblings.remove(item);
+        int index = 0;
+        if (after != null) {
+            index = siblings.indexOf(after) + 1;
+            if (index == 0) {
+                throw new IllegalArgumentException("The item to place it after isn't in the same list.");
+            }
+        }
+        siblings.add(index, item);
+
+        Integer previous = index > 0 ? key.applyAsInt(siblings.get(index - 1)) : null;
+        Integer next = index < siblings.size() - 1 ? key.applyAsInt(siblings.get(index + 1)) : null;
+        long lower = previous != null ? previous : (next != null ? (long) next - 2L * STEP : 0L);
+        long upper = next != null ? next : lower + 2L * STEP;
+        long midpoint = lower + (upper - lower) / 2;
+        if (upper - lower >= 2 && midpoint >= Integer.MIN_VALUE && midpoint <= Integer.MAX_VALUE) {
+            setKey.accept(item, (int) midpoint);
+            return false;
+        }
+        rebalance(siblings, setKey);
+        return true;
+    }
+
+    /**
+     * Renumbers a sibling list as STEP, 2 * STEP, ... keeping its order.
+     *
+     * @param siblings The siblings in their display order.
+     * @param setKey Sets an item's key.
+     */
+    public static <T> void rebalance(List<T> siblings, ObjIntConsumer<T> setKey) {
+        for (int i = 0; i < siblings.size(); i++) {
+            setKey.accept(siblings.get(i), Math.multiplyExact(i + 1, STEP));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.augmentative.communication.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation cursors for keyset pagination.
+ *
+ * A cursor holds the sort key of the last row of a page, e.g. {@code (orderNumber, id)};
+ * the next page starts right after it. It's sent to clients as URL-safe base64, so they
+ * treat it as a token and the key layout can change without breaking the API.
+ */
+public final class PageCursor {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final String VERSION = "v1";
+
+    private PageCursor() {
+    }
+
+    /**
+     * Keeps a requested page size between 1 and {@link #MAX_PAGE_SIZE}.
+     */
+    public static int pageSize(int requested) {
+        return Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Encodes the sort key of the last row of a page.
+     */
+    public static String encode(long... keys) {
+        StringBuilder cursor = new StringBuilder(VERSION);
+        for (long key : keys) {
+            cursor.append(':').append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodes a cursor created by {@link #encode}.
+     *
+     * @param cursor The cursor sent by the client.
+     * @param keyCount The number of keys the cursor must hold.
+     * @return The keys.
+     * @throws RuntimeException If the cursor is malformed.
+     */
+    public static long[] decode(String cursor, int keyCount) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(":");
+            if (parts.length != keyCount + 1 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException();
+            }
+            long[] keys = new long[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                keys[i] = Long.parseLong(parts[i + 1]);
+            }
+            return keys;
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid page cursor: " + cursor);
+        }
+    }
+}
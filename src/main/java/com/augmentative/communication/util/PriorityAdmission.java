@@ -0,0 +1,230 @@
+package com.augmentative.communication.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admits at most {@code maxConcurrent} requests at a time, and when they are all taken, hands
+ * each freed slot to the waiting request of the highest {@link Priority}; within a priority,
+ * first come first served. Running requests are never interrupted, so a higher priority
+ * overtakes the queue, not the work already started.
+ *
+ * Lower priorities are shed before higher ones under load:
+ * <ul>
+ *     <li>each priority has a {@code reserve}: it is only admitted while more than that many
+ *         slots are free, so the last slots are kept for higher priorities;</li>
+ *     <li>each priority has its own queue size and maximum wait; a request that finds its queue
+ *         full, or isn't admitted in time, is rejected.</li>
+ * </ul>
+ *
+ * Metrics, tagged with the priority: {@code admission.active}, {@code admission.queued},
+ * {@code admission.rejected} (also tagged with the reason, {@code queue-full} or {@code timeout}),
+ * and the timer {@code admission.wait}, the queueing delay of admitted requests.
+ */
+public final class PriorityAdmission {
+
+    /**
+     * Request priorities, highest first.
+     */
+    public enum Priority {
+        /** Latency critical: speech and the reads a device needs to show its board. */
+        INTERACTIVE,
+        /** Everything not listed as interactive or bulk. */
+        STANDARD,
+        /** Uploads, imports, exports and bulk operations. */
+        BULK;
+
+        public String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * The limits of one priority.
+     *
+     * @param reserve The number of slots that must stay free for higher priorities.
+     * @param maxQueued The maximum number of requests waiting.
+     * @param maxWait How long a request waits before it is rejected.
+     */
+    public record Limits(int reserve, int maxQueued, Duration maxWait) {
+    }
+
+    private static final class Waiter {
+        final Condition admitted;
+        boolean granted;
+
+        Waiter(Condition admitted) {
+            this.admitted = admitted;
+        }
+    }
+
+    private final int maxConcurrent;
+    private final Map<Priority, Limits> limits;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Priority, ArrayDeque<Waiter>> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, Integer> active = new EnumMap<>(Priority.class);
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+    private final Map<Priority, Counter> queueFull = new EnumMap<>(Priority.class);
+    private final Map<Priority, Counter> timedOut = new EnumMap<>(Priority.class);
+    // Guarded by lock
+    private int available;
+
+    /**
+     * @param maxConcurrent The maximum number of requests admitted at once.
+     * @param limits The limits of each priority.
+     */
+    public PriorityAdmission(int maxConcurrent, Map<Priority, Limits> limits, MeterRegistry meterRegistry) {
+        this.maxConcurrent = maxConcurrent;
+        this.limits = new EnumMap<>(limits);
+        this.available = maxConcurrent;
+        int previousReserve = 0;
+        for (Priority priority : Priority.values()) {
+            if (!limits.containsKey(priority)) {
+                throw new IllegalArgumentException("No admission limits for priority " + priority.tag());
+            }
+            // Otherwise a waiting higher priority could hold back a lower one that has room
+            if (limits.get(priority).reserve() < previousReserve) {
+                throw new IllegalArgumentException("The admission reserve of " + priority.tag() + " is lower than that of a higher priority");
+            }
+            previousReserve = limits.get(priority).reserve();
+            queues.put(priority, new ArrayDeque<>());
+            active.put(priority, 0);
+            Gauge.builder("admission.active", this, admission -> admission.getActive(priority)).tag("priority", priority.tag())
+                    .description("Requests being handled").register(meterRegistry);
+            Gauge.builder("admission.queued", this, admission -> admission.getQueued(priority)).tag("priority", priority.tag())
+                    .description("Requests waiting to be admitted").register(meterRegistry);
+            waitTimers.put(priority, Timer.builder("admission.wait").tag("priority", priority.tag())
+                    .description("Time requests wait to be admitted").register(meterRegistry));
+            queueFull.put(priority, Counter.builder("admission.rejected").tag("priority", priority.tag()).tag("reason", "queue-full")
+                    .description("Requests shed under load").register(meterRegistry));
+            timedOut.put(priority, Counter.builder("admission.rejected").tag("priority", priority.tag()).tag("reason", "timeout")
+                    .description("Requests shed under load").register(meterRegistry));
+        }
+    }
+
+    /**
+     * Waits until the request is admitted. Every successful call must be followed by {@link #release}.
+     *
+     * @return Whether the request was admitted; false if it was shed.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public boolean acquire(Priority priority) throws InterruptedException {
+        long startedAt = System.nanoTime();
+        Limits priorityLimits = limits.get(priority);
+        ArrayDeque<Waiter> queue = queues.get(priority);
+        lock.lock();
+        try {
+            if (queuedAhead(priority) == 0 && available > priorityLimits.reserve()) {
+                take(priority);
+                waitTimers.get(priority).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                return true;
+            }
+            if (queue.size() >= priorityLimits.maxQueued()) {
+                queueFull.get(priority).increment();
+                return false;
+            }
+            Waiter waiter = new Waiter(lock.newCondition());
+            queue.addLast(waiter);
+            long remaining = priorityLimits.maxWait().toNanos();
+            try {
+                while (!waiter.granted && remaining > 0) {
+                    remaining = waiter.admitted.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                if (!waiter.granted) {
+                    queue.remove(waiter);
+                    throw e;
+                }
+                // Admitted anyway; keep the interrupt for the request
+                Thread.currentThread().interrupt();
+            }
+            if (!waiter.granted) {
+                queue.remove(waiter);
+                timedOut.get(priority).increment();
+                return false;
+            }
+            waitTimers.get(priority).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Frees the slot of an admitted request and hands it to the next waiting one, if any.
+     */
+    public void release(Priority priority) {
+        lock.lock();
+        try {
+            active.merge(priority, -1, Integer::sum);
+            available++;
+            for (Priority next : Priority.values()) {
+                ArrayDeque<Waiter> queue = queues.get(next);
+                if (queue.isEmpty()) {
+                    continue;
+                }
+                // Strictly by priority: a lower priority never overtakes a waiting higher one
+                if (available > limits.get(next).reserve()) {
+                    Waiter waiter = queue.pollFirst();
+                    take(next);
+                    waiter.granted = true;
+                    waiter.admitted.signal();
+                }
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getActive(Priority priority) {
+        lock.lock();
+        try {
+            return active.get(priority);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued(Priority priority) {
+        lock.lock();
+        try {
+            return queues.get(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void take(Priority priority) {
+        available--;
+        active.merge(priority, 1, Integer::sum);
+    }
+
+    /**
+     * The number of requests of the same or a higher priority already waiting.
+     */
+    private int queuedAhead(Priority priority) {
+        int queued = 0;
+        for (Priority other : Priority.values()) {
+            queued += queues.get(other).size();
+            if (other == priority) {
+                break;
+            }
+        }
+        return queued;
+    }
+}
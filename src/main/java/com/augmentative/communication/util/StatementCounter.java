@@ -0,0 +1,34 @@
+package com.augmentative.communication.util;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, so the statements run
+ * for one request can be measured. Registered through
+ * {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}; Hibernate
+ * creates the instance, so the count is kept in a static thread local.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    /**
+     * Starts counting again for the current thread.
+     */
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    /**
+     * The number of statements prepared on the current thread since the last {@link #reset}.
+     */
+    public static int count() {
+        return COUNT.get()[0];
+    }
+}
@@ -0,0 +1,220 @@
+package com.augmentative.communication.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A character trie over folded search terms, mapping each term to the IDs of the entries
+ * that contain it. Children are kept in sorted arrays and IDs in plain {@code long[]}s,
+ * so a node costs a few small arrays instead of a map.
+ *
+ * Lookups match query terms as prefixes, with up to a given number of typos (insertions,
+ * deletions or substitutions): the trie is walked depth first while carrying one row of the
+ * edit distance table, and branches that can't get within the limit are cut off.
+ *
+ * Not thread safe; callers guard it with a read-write lock.
+ */
+public final class VocabularyTrie {
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final long[] NO_IDS = new long[0];
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Node root = new Node();
+
+    /**
+     * Receives the entries matched by {@link #search}.
+     */
+    @FunctionalInterface
+    public interface MatchConsumer {
+        /**
+         * @param id The entry ID.
+         * @param distance The number of typos between the query and the start of the term.
+         * @param wholeTerm Whether the query matched the whole term rather than a prefix of it.
+         */
+        void accept(long id, int distance, boolean wholeTerm);
+    }
+
+    private static final class Node {
+        char[] labels = NO_LABELS;
+        Node[] children = NO_CHILDREN;
+        long[] ids = NO_IDS;
+        int idCount;
+
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node child = new Node();
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newLabels[insertAt] = label;
+            newChildren[insertAt] = child;
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+
+        void removeChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            labels = newLabels.length == 0 ? NO_LABELS : newLabels;
+            children = newChildren.length == 0 ? NO_CHILDREN : newChildren;
+        }
+
+        void addId(long id) {
+            for (int i = 0; i < idCount; i++) {
+                if (ids[i] == id) {
+                    return;
+                }
+            }
+            if (idCount == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(2, idCount * 2));
+            }
+            ids[idCount++] = id;
+        }
+
+        void removeId(long id) {
+            for (int i = 0; i < idCount; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--idCount];
+                    if (idCount == 0) {
+                        ids = NO_IDS;
+                    }
+                    return;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return idCount == 0 && labels.length == 0;
+        }
+    }
+
+    /**
+     * Splits a text into search terms: lower case, diacritics removed (õ, ä, ö, ü become
+     * o, a, o, u, and š, ž become s, z), split on anything that isn't a letter or digit.
+     */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)).replaceAll("");
+        for (String term : SEPARATORS.split(folded)) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    public void add(String term, long id) {
+        Node node = root;
+        for (int i = 0; i < term.length(); i++) {
+            node = node.childOrCreate(term.charAt(i));
+        }
+        node.addId(id);
+    }
+
+    /**
+     * Removes an entry from a term, pruning nodes that are left without entries or children.
+     */
+    public void remove(String term, long id) {
+        Node[] path = new Node[term.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < term.length(); i++) {
+            path[i + 1] = path[i].child(term.charAt(i));
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+        path[term.length()].removeId(id);
+        for (int i = term.length(); i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].removeChild(term.charAt(i - 1));
+        }
+    }
+
+    /**
+     * Finds every entry with a term that starts with {@code query}, allowing up to
+     * {@code maxEdits} typos. An entry can be reported more than once, through different terms.
+     */
+    public void search(String query, int maxEdits, MatchConsumer consumer) {
+        int[] row = new int[query.length() + 1];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = i;
+        }
+        search(root, query, row, row[query.length()], maxEdits, consumer);
+    }
+
+    /**
+     * @param row The edit distances between the prefixes of the query and the path to this node.
+     * @param best The lowest distance between the whole query and any prefix of the path so far.
+     */
+    private void search(Node node, String query, int[] row, int best, int maxEdits, MatchConsumer consumer) {
+        int queryLength = query.length();
+        if (best <= maxEdits) {
+            for (int i = 0; i < node.idCount; i++) {
+                consumer.accept(node.ids[i], best, row[queryLength] == best);
+            }
+        }
+        int rowMin = Integer.MAX_VALUE;
+        for (int distance : row) {
+            rowMin = Math.min(rowMin, distance);
+        }
+        if (rowMin > maxEdits) {
+            // Going deeper can't bring the distance down anymore; the rest of the subtree
+            // only matches as a completion of a prefix already within the limit
+            if (best <= maxEdits) {
+                for (Node child : node.children) {
+                    collect(child, best, consumer);
+                }
+            }
+            return;
+        }
+        for (int c = 0; c < node.labels.length; c++) {
+            char label = node.labels[c];
+            int[] next = new int[queryLength + 1];
+            next[0] = row[0] + 1;
+            for (int i = 1; i <= queryLength; i++) {
+                int substitution = row[i - 1] + (query.charAt(i - 1) == label ? 0 : 1);
+                next[i] = Math.min(substitution, Math.min(row[i] + 1, next[i - 1] + 1));
+            }
+            search(node.children[c], query, next, Math.min(best, next[queryLength]), maxEdits, consumer);
+        }
+    }
+
+    private void collect(Node node, int distance, MatchConsumer consumer) {
+        for (int i = 0; i < node.idCount; i++) {
+            consumer.accept(node.ids[i], distance, false);
+        }
+        for (Node child : node.children) {
+            collect(child, distance, consumer);
+        }
+    }
+}
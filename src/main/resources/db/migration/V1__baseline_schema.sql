@@ -0,0 +1,47 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update).
+-- Databases created before migrations were introduced are baselined at this version,
+-- so constraint names are kept exactly as Hibernate generated them.
+
+create table users (
+    id bigint generated by default as identity,
+    email varchar(255) not null unique,
+    password_hash varchar(255) not null,
+    username varchar(255) not null unique,
+    primary key (id)
+);
+
+create table child_profile (
+    id bigint generated by default as identity,
+    user_id bigint not null,
+    name varchar(255) not null,
+    primary key (id),
+    constraint FK64e1ils9q468rv69igd9gin9t foreign key (user_id) references users (id)
+);
+
+create table category (
+    order_number integer,
+    child_profile_id bigint not null,
+    id bigint generated by default as identity,
+    image_url varchar(255) not null,
+    name varchar(255) not null,
+    primary key (id),
+    constraint FK6ed9bfijjd7464id338evwha3 foreign key (child_profile_id) references child_profile (id)
+);
+
+create table image_word (
+    order_number integer,
+    category_id bigint not null,
+    id bigint generated by default as identity,
+    image_url varchar(255) not null,
+    word varchar(255) not null,
+    primary key (id),
+    constraint FK5sbw3rbw2374cs77h9m8xk4fq foreign key (category_id) references category (id)
+);
+
+create table pending_image_deletions (
+    attempts integer not null,
+    created_at timestamp(6) with time zone not null,
+    id bigint generated by default as identity,
+    image_url varchar(255) not null,
+    primary key (id)
+);
@@ -0,0 +1,9 @@
+-- Indexes for the hot lookup paths, so they no longer scan the tables:
+-- categories of a profile and words of a category are read in display order,
+-- profiles are listed per user.
+
+create index idx_category_child_profile_order on category (child_profile_id, order_number);
+
+create index idx_image_word_category_order on image_word (category_id, order_number);
+
+create index idx_child_profile_user on child_profile (user_id);
@@ -0,0 +1,18 @@
+-- order_number becomes a sparse ordering key (steps of 1024), so moving an item is a single
+-- row update: it gets a key between its new neighbours. Rows without a key are appended
+-- after their ordered siblings, in insertion (id) order.
+
+update category c
+set order_number = coalesce((select max(o.order_number) from category o where o.child_profile_id = c.child_profile_id), 0)
+    + 1024 * (select count(*) from category n
+              where n.child_profile_id = c.child_profile_id and n.order_number is null and n.id <= c.id)
+where c.order_number is null;
+
+update image_word w
+set order_number = coalesce((select max(o.order_number) from image_word o where o.category_id = w.category_id), 0)
+    + 1024 * (select count(*) from image_word n
+              where n.category_id = w.category_id and n.order_number is null and n.id <= w.id)
+where w.order_number is null;
+
+alter table category alter column order_number set not null;
+alter table image_word alter column order_number set not null;
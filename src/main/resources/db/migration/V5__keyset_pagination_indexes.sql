@@ -0,0 +1,9 @@
+-- Keyset pagination seeks on (order_number, id) within a category and on id within a user,
+-- so the tie-breaking id is added to the lookup indexes: every page, however deep, is then
+-- one index range scan that stops after the page size.
+
+drop index idx_image_word_category_order;
+create index idx_image_word_category_order on image_word (category_id, order_number, id);
+
+drop index idx_child_profile_user;
+create index idx_child_profile_user on child_profile (user_id, id);
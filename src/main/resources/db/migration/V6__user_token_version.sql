@@ -0,0 +1,3 @@
+-- Tokens carry the user's token version; raising it revokes every token issued before.
+
+alter table users add column token_version integer default 0 not null;
@@ -0,0 +1,22 @@
+-- Refresh tokens, stored as SHA-256 digests. Tokens issued from one login form a family;
+-- each refresh marks the presented token used and issues the next one in the family.
+
+create sequence refresh_token_seq start with 1 increment by 50;
+
+create table refresh_token (
+    id bigint not null,
+    user_id bigint not null,
+    token_hash char(64) not null,
+    family_id varchar(36) not null,
+    expires_at timestamp(6) with time zone not null,
+    used boolean not null,
+    primary key (id),
+    constraint fk_refresh_token_user foreign key (user_id) references users (id)
+);
+
+-- Every refresh looks its token up by digest
+create unique index idx_refresh_token_hash on refresh_token (token_hash);
+
+create index idx_refresh_token_family on refresh_token (family_id);
+
+create index idx_refresh_token_user on refresh_token (user_id);
@@ -0,0 +1,32 @@
+package com.augmentative.communication;
+
+import com.augmentative.communication.dto.AuthenticatedUser;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+/**
+ * Runs each test as a signed-in user, the way {@code JwtRequestFilter} authenticates a request,
+ * and signs out afterwards. Tests that need a specific user call {@link #signIn} themselves.
+ */
+public class SignedInExtension implements BeforeEachCallback, AfterEachCallback {
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        signIn(0L, context.getRequiredTestClass().getSimpleName());
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        SecurityContextHolder.clearContext();
+    }
+
+    public static void signIn(Long userId, String username) {
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                new AuthenticatedUser(userId, username), null, List.of()));
+    }
+}
@@ -0,0 +1,77 @@
+package com.augmentative.communication;
+
+import com.augmentative.communication.model.Category;
+import com.augmentative.communication.model.ChildProfile;
+import com.augmentative.communication.model.ImageWord;
+import com.augmentative.communication.model.User;
+import com.augmentative.communication.util.OrderKeys;
+import jakarta.persistence.EntityManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Persists a user with one child profile and a board of categories and words, for tests that
+ * need rows in the database. Must be called inside a transaction.
+ */
+public final class TestBoards {
+
+    private TestBoards() {
+    }
+
+    /**
+     * A persisted board.
+     *
+     * @param childProfile The profile owning the board.
+     * @param categories The categories, in board order.
+     * @param wordIds The IDs of the words of each category, in board order.
+     */
+    public record Board(ChildProfile childProfile, List<Category> categories, List<List<Long>> wordIds) {
+    }
+
+    /**
+     * @param prefix Prefix of the (otherwise random) username, naming the test in the database.
+     * @param categories The number of categories to create.
+     * @param wordsPerCategory The number of words to create in each category.
+     */
+    public static Board persist(EntityManager entityManager, String prefix, int categories, int wordsPerCategory) {
+        User user = new User();
+        user.setUsername(prefix + "-" + UUID.randomUUID());
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setPasswordHash("unused");
+        entityManager.persist(user);
+
+        ChildProfile childProfile = new ChildProfile();
+        childProfile.setName("Profile");
+        childProfile.setUser(user);
+        entityManager.persist(childProfile);
+
+        List<Category> categoryList = new ArrayList<>(categories);
+        List<List<Long>> wordIds = new ArrayList<>(categories);
+        Integer categoryOrder = null;
+        for (int i = 0; i < categories; i++) {
+            Category category = new Category();
+            category.setName("Category " + i);
+            category.setImageUrl("/images/category.png");
+            category.setOrderNumber(categoryOrder = OrderKeys.append(categoryOrder));
+            category.setChildProfile(childProfile);
+            entityManager.persist(category);
+            categoryList.add(category);
+
+            List<Long> categoryWordIds = new ArrayList<>(wordsPerCategory);
+            Integer wordOrder = null;
+            for (int j = 0; j < wordsPerCategory; j++) {
+                ImageWord imageWord = new ImageWord();
+                imageWord.setWord("Word " + j);
+                imageWord.setImageUrl("/images/word.png");
+                imageWord.setOrderNumber(wordOrder = OrderKeys.append(wordOrder));
+                imageWord.setCategory(category);
+                entityManager.persist(imageWord);
+                categoryWordIds.add(imageWord.getId());
+            }
+            wordIds.add(categoryWordIds);
+        }
+        return new Board(childProfile, categoryList, wordIds);
+    }
+}
@@ -0,0 +1,88 @@
+package com.augmentative.communication.config;
+
+import com.augmentative.communication.model.User;
+import com.augmentative.communication.repository.UserRepository;
+import com.augmentative.communication.util.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks who can reach the operator actuator endpoints (metrics and the bulkhead switch):
+ * Prometheus and operators with the scrape token, but not anonymous requests or signed in parent accounts.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "metrics.prometheus.scrape-token=" + ActuatorSecurityTest.SCRAPE_TOKEN)
+@ActiveProfiles("test")
+@AutoConfigureObservability // Tests don't export metrics to Prometheus otherwise
+class ActuatorSecurityTest {
+
+    static final String SCRAPE_TOKEN = "test-scrape-token";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/actuator/metrics", "/actuator/metrics/jvm.threads.live", "/actuator/prometheus", "/actuator/bulkheads"})
+    void metricsNeedScrapeToken(String path) {
+        assertEquals(HttpStatus.OK, get(path, SCRAPE_TOKEN));
+        assertEquals(HttpStatus.FORBIDDEN, get(path, parentToken()));
+        assertTrue(get(path, null).is4xxClientError());
+    }
+
+    @Test
+    void bulkheadSwitchNeedsScrapeToken() {
+        assertEquals(HttpStatus.FORBIDDEN, switchToPlatformThreads(parentToken()));
+        assertTrue(switchToPlatformThreads(null).is4xxClientError());
+        assertEquals(HttpStatus.OK, switchToPlatformThreads(SCRAPE_TOKEN));
+    }
+
+    private HttpStatusCode get(String path, String bearerToken) {
+        return restTemplate.exchange(path, HttpMethod.GET, new HttpEntity<>(headers(bearerToken)), String.class).getStatusCode();
+    }
+
+    private HttpStatusCode switchToPlatformThreads(String bearerToken) {
+        HttpHeaders headers = headers(bearerToken);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return restTemplate.exchange("/actuator/bulkheads", HttpMethod.POST,
+                new HttpEntity<>("{\"virtualThreads\": false}", headers), String.class).getStatusCode();
+    }
+
+    private static HttpHeaders headers(String bearerToken) {
+        HttpHeaders headers = new HttpHeaders();
+        if (bearerToken != null) {
+            headers.setBearerAuth(bearerToken);
+        }
+        return headers;
+    }
+
+    private String parentToken() {
+        User user = new User();
+        user.setUsername("parent-" + UUID.randomUUID());
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setPasswordHash("unused");
+        user = userRepository.save(user);
+        return jwtUtil.generateToken(user.getUsername(), user.getId(), user.getTokenVersion(), List.of());
+    }
+}
@@ -0,0 +1,63 @@
+package com.augmentative.communication.controller;
+
+import com.augmentative.communication.model.User;
+import com.augmentative.communication.repository.UserRepository;
+import com.augmentative.communication.service.UserService;
+import com.augmentative.communication.util.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class DeviceWebSocketHandlerTest {
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Test
+    void revokingTokensClosesOpenConnections() throws Exception {
+        User user = new User();
+        user.setUsername("device-" + UUID.randomUUID());
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setPasswordHash("unused");
+        user = userRepository.save(user);
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        headers.setBearerAuth(jwtUtil.generateToken(user.getUsername(), user.getId(), user.getTokenVersion(), List.of()));
+
+        CompletableFuture<CloseStatus> closed = new CompletableFuture<>();
+        WebSocketSession device = new StandardWebSocketClient().execute(new TextWebSocketHandler() {
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+                closed.complete(status);
+            }
+        }, headers, URI.create("ws://localhost:" + port + "/ws/device")).get(10, TimeUnit.SECONDS);
+        assertTrue(device.isOpen());
+
+        userService.revokeTokens(user.getId());
+
+        assertEquals(DeviceWebSocketHandler.TOKEN_REVOKED.getCode(), closed.get(10, TimeUnit.SECONDS).getCode());
+    }
+}
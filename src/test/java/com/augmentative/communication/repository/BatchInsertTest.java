@@ -0,0 +1,66 @@
+package com.augmentative.communication.repository;
+
+import com.augmentative.communication.TestBoards;
+import com.augmentative.communication.model.Category;
+import com.augmentative.communication.model.ImageWord;
+import com.augmentative.communication.util.OrderKeys;
+import com.augmentative.communication.util.StatementCounter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that inserts take IDs from the pooled sequences and go to the database in JDBC
+ * batches: a few statements for a whole category of words rather than two per row.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class BatchInsertTest {
+
+    private static final int BATCH_SIZE = 50;
+    private static final int WORDS = 120;
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void batchSizeMatchesSequenceAllocation() {
+        assertEquals(String.valueOf(BATCH_SIZE), entityManagerFactory.getProperties().get("hibernate.jdbc.batch_size"));
+    }
+
+    @Test
+    void insertsAreBatchedWithPooledIds() {
+        int statements = transactionTemplate.execute(status -> {
+            Category category = TestBoards.persist(entityManager, "batch", 1, 0).categories().get(0);
+            entityManager.flush();
+
+            StatementCounter.reset();
+            Integer orderNumber = null;
+            for (int i = 0; i < WORDS; i++) {
+                ImageWord imageWord = new ImageWord();
+                imageWord.setWord("Word " + i);
+                imageWord.setImageUrl("/images/word.png");
+                imageWord.setOrderNumber(orderNumber = OrderKeys.append(orderNumber));
+                imageWord.setCategory(category);
+                entityManager.persist(imageWord);
+            }
+            entityManager.flush();
+            return StatementCounter.count();
+        });
+
+        // One sequence call per 50 IDs, plus one for a block already partly used, and one insert per batch
+        int batches = (WORDS + BATCH_SIZE - 1) / BATCH_SIZE;
+        assertTrue(statements <= (batches + 1) + batches, () -> statements + " statements for " + WORDS + " inserts");
+    }
+}
@@ -0,0 +1,82 @@
+package com.augmentative.communication.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks with EXPLAIN that the hot lookups seek on the indexes from the V2 and V5 migrations
+ * instead of scanning. The statements are the SQL of the corresponding repository queries,
+ * run against one user's profiles, categories and words once the planner has statistics.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class LookupIndexTest {
+
+    // Far above the IDs the sequences hand out to the other tests
+    private static final long FIRST_ID = 9_000_000L;
+    private static final int ROWS = 200;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void createRows() {
+        jdbcTemplate.update("insert into users (id, email, password_hash, username) values (?, ?, 'unused', ?)",
+                FIRST_ID, "lookup@example.com", "lookup-index");
+        jdbcTemplate.batchUpdate("insert into child_profile (id, user_id, name) values (?, ?, 'Profile')",
+                rows(i -> new Object[]{FIRST_ID + i, FIRST_ID}));
+        jdbcTemplate.batchUpdate("insert into category (id, child_profile_id, order_number, name, image_url) values (?, ?, ?, 'Category', '/images/c.png')",
+                rows(i -> new Object[]{FIRST_ID + i, FIRST_ID + i % 10, i * 1024}));
+        jdbcTemplate.batchUpdate("insert into image_word (id, category_id, order_number, word, image_url) values (?, ?, ?, 'Word', '/images/w.png')",
+                rows(i -> new Object[]{FIRST_ID + i, FIRST_ID + i % 10, i * 1024}));
+        jdbcTemplate.execute("analyze");
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', value = {
+            // CategoryRepository.findBoardRows, categories side
+            "board categories | idx_category_child_profile_order | "
+                    + "select c.id, w.id from category c left join image_word w on w.category_id = c.id "
+                    + "where c.child_profile_id = 9000000 order by c.order_number, c.id, w.order_number, w.id",
+            // CategoryRepository.findBoardRows, words side
+            "board words | idx_image_word_category_order | "
+                    + "select c.id, w.id from category c left join image_word w on w.category_id = c.id "
+                    + "where c.child_profile_id = 9000000 order by c.order_number, c.id, w.order_number, w.id",
+            // CategoryRepository.findByChildProfileIdOrderByOrderNumberAsc
+            "profile categories | idx_category_child_profile_order | "
+                    + "select id from category where child_profile_id = 9000000 order by order_number",
+            // ImageWordRepository.findPageAfter
+            "word page | idx_image_word_category_order | "
+                    + "select id from image_word where category_id = 9000000 and order_number >= 1024 "
+                    + "and (order_number > 1024 or id > 7) order by order_number, id fetch first 50 rows only",
+            // ChildProfileRepository.findByUserIdAndIdGreaterThanOrderByIdAsc
+            "profile page | idx_child_profile_user | "
+                    + "select id from child_profile where user_id = 9000000 and id > 7 order by id fetch first 50 rows only"
+    })
+    void lookupUsesIndex(String lookup, String index, String sql) {
+        String plan = jdbcTemplate.queryForObject("explain " + sql, String.class);
+
+        assertTrue(plan.toLowerCase().contains(index), () -> lookup + " doesn't use " + index + ":\n" + plan);
+    }
+
+    private static List<Object[]> rows(IntFunction<Object[]> row) {
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(row.apply(i));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,49 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.SignedInExtension;
+import com.augmentative.communication.TestBoards;
+import com.augmentative.communication.dto.BoardDTO;
+import com.augmentative.communication.util.StatementCounter;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@ExtendWith(SignedInExtension.class)
+class BoardServiceTest {
+
+    private static final int WORDS_PER_CATEGORY = 5;
+
+    @Autowired
+    private BoardService boardService;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    void getBoardRunsOneStatementWhateverItsSize(int categories) {
+        Long childProfileId = createBoard(categories);
+
+        StatementCounter.reset();
+        BoardDTO board = boardService.getBoard(childProfileId);
+
+        assertEquals(1, StatementCounter.count());
+        assertEquals(categories, board.getCategories().size());
+        assertEquals(WORDS_PER_CATEGORY, board.getCategories().get(categories - 1).getItems().size());
+    }
+
+    private Long createBoard(int categories) {
+        return transactionTemplate.execute(status -> TestBoards.persist(entityManager, "board", categories, WORDS_PER_CATEGORY)
+                .childProfile().getId());
+    }
+}
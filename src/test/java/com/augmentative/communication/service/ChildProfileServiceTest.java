@@ -0,0 +1,87 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.SignedInExtension;
+import com.augmentative.communication.dto.BoardRow;
+import com.augmentative.communication.dto.ChildProfileDTO;
+import com.augmentative.communication.model.User;
+import com.augmentative.communication.repository.CategoryRepository;
+import com.augmentative.communication.repository.ChildProfileRepository;
+import com.augmentative.communication.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@ExtendWith(SignedInExtension.class)
+class ChildProfileServiceTest {
+
+    @Autowired
+    private ChildProfileService childProfileService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ChildProfileRepository childProfileRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @MockBean
+    private ImageStorageService imageStorageService;
+
+    private User user;
+
+    @BeforeEach
+    void signIn() {
+        user = new User();
+        user.setUsername("seed-" + UUID.randomUUID());
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setPasswordHash("unused");
+        user = userRepository.save(user);
+        SignedInExtension.signIn(user.getId(), user.getUsername());
+    }
+
+    @Test
+    void saveSeedsDefaultBoard() throws Exception {
+        when(imageStorageService.saveImage(any(MultipartFile.class))).thenReturn("/images/seed.png");
+
+        ChildProfileDTO saved = childProfileService.save(user.getId(), profileNamed("Seeded"));
+
+        assertEquals(2, categoryRepository.findBoardRows(saved.getId()).stream()
+                .map(BoardRow::categoryId).distinct().count());
+        assertEquals(6, categoryRepository.findBoardRows(saved.getId()).stream()
+                .filter(row -> row.imageWordId() != null).count());
+    }
+
+    @Test
+    void saveKeepsProfileWhenSeedingFails() throws Exception {
+        // The first category gets its image, then the images bulkhead is full
+        when(imageStorageService.saveImage(any(MultipartFile.class)))
+                .thenReturn("/images/seed.png")
+                .thenThrow(new RejectedExecutionException("Image bulkhead is full"));
+
+        ChildProfileDTO saved = childProfileService.save(user.getId(), profileNamed("Unseeded"));
+
+        assertTrue(childProfileRepository.existsById(saved.getId()));
+        // The seeding rolled back as a whole
+        assertTrue(categoryRepository.findBoardRows(saved.getId()).isEmpty());
+    }
+
+    private static ChildProfileDTO profileNamed(String name) {
+        ChildProfileDTO profile = new ChildProfileDTO();
+        profile.setName(name);
+        return profile;
+    }
+}
@@ -0,0 +1,51 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.SignedInExtension;
+import com.augmentative.communication.TestBoards;
+import com.augmentative.communication.dto.ImageWordDTO;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@ExtendWith(SignedInExtension.class)
+class ImageWordServiceTest {
+
+    @Autowired
+    private ImageWordService imageWordService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void moveIsVisibleThroughCachedCategory() {
+        TestBoards.Board board = transactionTemplate.execute(status -> TestBoards.persist(entityManager, "move", 1, 3));
+        Long categoryId = board.categories().get(0).getId();
+        List<Long> wordIds = board.wordIds().get(0);
+        // Puts the category's image+words collection into the second-level cache
+        assertEquals(wordIds, wordIdsOf(categoryId));
+
+        imageWordService.move(wordIds.get(2), null);
+
+        assertEquals(List.of(wordIds.get(2), wordIds.get(0), wordIds.get(1)), wordIdsOf(categoryId));
+    }
+
+    private List<Long> wordIdsOf(Long categoryId) {
+        return transactionTemplate.execute(status -> categoryService.findById(categoryId).orElseThrow()
+                .getItems().stream()
+                .map(ImageWordDTO::getId)
+                .toList());
+    }
+}
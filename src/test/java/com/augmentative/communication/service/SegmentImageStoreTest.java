@@ -0,0 +1,92 @@
+package com.augmentative.communication.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentImageStoreTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private SegmentImageStore store;
+
+    @BeforeEach
+    void open() throws IOException {
+        store = openStore();
+    }
+
+    @AfterEach
+    void close() {
+        store.close();
+    }
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        byte[] image = randomBytes(10_000);
+        store.write("a.png", tempFile(image));
+
+        assertArrayEquals(image, store.read("a.png").orElseThrow().getContentAsByteArray());
+        assertEquals(image.length, store.read("a.png").orElseThrow().contentLength());
+    }
+
+    @Test
+    void lastModifiedIsWriteTimeOfImageAndSurvivesCompactionAndRestart() throws Exception {
+        Instant before = Instant.now();
+        store.write("old.png", tempFile(randomBytes(1_000)));
+        Instant written = store.lastModified("old.png").orElseThrow();
+        assertFalse(written.isBefore(before.minusMillis(1)));
+
+        // Later writes to the same segment don't make the first image look new
+        Thread.sleep(20);
+        store.write("new.png", tempFile(randomBytes(1_000)));
+        assertEquals(written, store.lastModified("old.png").orElseThrow());
+        assertTrue(store.lastModified("new.png").orElseThrow().isAfter(written));
+
+        // Compaction copies the needle to a new segment and keeps its write time
+        store.write("dead.png", tempFile(randomBytes(50_000)));
+        ReflectionTestUtils.setField(store, "maxSegmentSize", 1L);
+        store.write("next.png", tempFile(randomBytes(1_000)));
+        store.delete("dead.png");
+        store.compact();
+        assertEquals(written, store.lastModified("old.png").orElseThrow());
+
+        store.close();
+        store = openStore();
+        assertEquals(written, store.lastModified("old.png").orElseThrow());
+        assertTrue(store.read("old.png").isPresent());
+        assertTrue(store.read("dead.png").isEmpty());
+    }
+
+    private SegmentImageStore openStore() throws IOException {
+        SegmentImageStore segmentImageStore = new SegmentImageStore();
+        ReflectionTestUtils.setField(segmentImageStore, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(segmentImageStore, "maxSegmentSize", 1L << 20);
+        ReflectionTestUtils.setField(segmentImageStore, "compactionThreshold", 0.4);
+        segmentImageStore.open();
+        return segmentImageStore;
+    }
+
+    private Path tempFile(byte[] content) throws IOException {
+        return Files.write(Files.createTempFile(uploadDir, "upload", ".tmp"), content);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,108 @@
+package com.augmentative.communication.service;
+
+import com.augmentative.communication.dto.BoardRow;
+import com.augmentative.communication.dto.VocabularyMatchDTO;
+import com.augmentative.communication.event.ImageWordChangedEvent;
+import com.augmentative.communication.repository.CategoryRepository;
+import com.augmentative.communication.repository.ImageWordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VocabularySearchServiceTest {
+
+    private static final long PROFILE_ID = 1L;
+    private static final long CATEGORY_ID = 10L;
+
+    private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    private final ImageWordRepository imageWordRepository = mock(ImageWordRepository.class);
+    private VocabularySearchService vocabularySearchService;
+
+    @BeforeEach
+    void setUp() {
+        when(categoryRepository.findBoardRows(PROFILE_ID)).thenReturn(List.of(
+                row(1, "Õun"),
+                row(2, "Õunamahl"),
+                row(3, "Piim"),
+                row(4, "Šokolaad"),
+                row(5, "Kass"),
+                row(6, "Koer"),
+                row(7, "Punane õun"),
+                row(8, "Kartul"),
+                row(9, "Kassid")));
+        vocabularySearchService = new VocabularySearchService(categoryRepository, imageWordRepository, 10, Duration.ofHours(1));
+    }
+
+    @Test
+    void foldsDiacriticsOfQueryAndWords() {
+        assertEquals(List.of(4L), search("sokolaad"));
+        assertEquals(List.of(4L), search("ŠOKOLAAD"));
+        assertEquals(List.of(1L, 7L, 2L), search("õun"));
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource({
+            // Up to 3 letters: no typos
+            "kas, 5 9",
+            "kos, ''",
+            // 4 to 6 letters: one typo
+            "piin, 3",
+            "kartol, 8",
+            "kxrtol, ''",
+            // 7 letters and more: two typos
+            "sikolaud, 4",
+            "sikilaud, ''",
+    })
+    void typosAllowedGrowWithTermLength(String query, String expectedIds) {
+        List<Long> expected = expectedIds.isEmpty() ? List.of() : Arrays.stream(expectedIds.split(" ")).map(Long::valueOf).toList();
+
+        assertEquals(expected, search(query));
+    }
+
+    @Test
+    void wholeTermsRankAboveLongerWordsStartingWithTheQuery() {
+        // Whole term, shorter word first; then the prefix match
+        assertEquals(List.of(1L, 7L, 2L), search("oun"));
+        // A typo in a whole term costs more than matching only the start of a longer one
+        assertEquals(List.of(9L, 5L), search("kassi"));
+    }
+
+    @Test
+    void multiTermQueryMatchesWordsWithAllTerms() {
+        assertEquals(List.of(7L), search("punane oun"));
+        assertEquals(List.of(7L), search("oun punane"));
+        assertEquals(List.of(7L), search("pun ou"));
+        assertEquals(List.of(), search("punane piim"));
+    }
+
+    @Test
+    void removedWordIsNotFoundAnymore() {
+        assertEquals(List.of(1L, 7L, 2L), search("oun"));
+
+        when(imageWordRepository.findById(2L)).thenReturn(Optional.empty());
+        vocabularySearchService.onImageWordChanged(new ImageWordChangedEvent(PROFILE_ID, 2L));
+
+        assertEquals(List.of(1L, 7L), search("oun"));
+        assertEquals(List.of(), search("ounamahl"));
+    }
+
+    private List<Long> search(String query) {
+        return vocabularySearchService.search(PROFILE_ID, query, VocabularySearchService.DEFAULT_LIMIT).stream()
+                .map(VocabularyMatchDTO::getId)
+                .toList();
+    }
+
+    private static BoardRow row(long imageWordId, String word) {
+        return new BoardRow(CATEGORY_ID, "Category", "/images/category.png", imageWordId, word, "/images/word.png");
+    }
+}
@@ -0,0 +1,228 @@
+package com.augmentative.communication.util;
+
+import com.augmentative.communication.util.PriorityAdmission.Limits;
+import com.augmentative.communication.util.PriorityAdmission.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class PriorityAdmissionTest {
+
+    private static final Duration LONG_WAIT = Duration.ofSeconds(30);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void releaseHandsTheSlotToTheHighestPriorityWaiting() throws Exception {
+        PriorityAdmission admission = admission(1, 0, 0, 10, LONG_WAIT);
+        assertTrue(admission.acquire(Priority.STANDARD));
+
+        BlockingQueue<Priority> admitted = new LinkedBlockingQueue<>();
+        // Queued lowest priority first, with two standard requests
+        for (Priority priority : new Priority[]{Priority.BULK, Priority.STANDARD, Priority.INTERACTIVE, Priority.STANDARD}) {
+            startWaiter(admission, priority, admitted);
+        }
+
+        admission.release(Priority.STANDARD);
+        assertEquals(Priority.INTERACTIVE, admitted.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, admission.getActive(Priority.INTERACTIVE));
+        assertEquals(0, admission.getActive(Priority.STANDARD));
+
+        admission.release(Priority.INTERACTIVE);
+        assertEquals(Priority.STANDARD, admitted.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, admission.getQueued(Priority.STANDARD));
+        admission.release(Priority.STANDARD);
+        assertEquals(Priority.STANDARD, admitted.poll(5, TimeUnit.SECONDS));
+
+        // The bulk request, queued first, waited for all of them
+        assertEquals(1, admission.getQueued(Priority.BULK));
+        admission.release(Priority.STANDARD);
+        assertEquals(Priority.BULK, admitted.poll(5, TimeUnit.SECONDS));
+        assertEquals(0, admission.getQueued(Priority.BULK));
+    }
+
+    @Test
+    void lowerPrioritiesAreOnlyAdmittedAboveTheirReserve() throws Exception {
+        // 4 slots; standard keeps 1 free for interactive, bulk keeps 2 free
+        PriorityAdmission admission = admission(4, 1, 2, 10, Duration.ofMillis(20));
+
+        assertTrue(admission.acquire(Priority.BULK));
+        assertTrue(admission.acquire(Priority.BULK));
+        // 2 free, not more than the bulk reserve
+        assertFalse(admission.acquire(Priority.BULK));
+        assertTrue(admission.acquire(Priority.STANDARD));
+        // 1 free, not more than the standard reserve
+        assertFalse(admission.acquire(Priority.STANDARD));
+        assertTrue(admission.acquire(Priority.INTERACTIVE));
+        assertEquals(2, admission.getActive(Priority.BULK));
+        assertEquals(1, admission.getActive(Priority.STANDARD));
+        assertEquals(1, admission.getActive(Priority.INTERACTIVE));
+    }
+
+    @Test
+    void releaseDoesNotHandOutReservedSlots() throws Exception {
+        PriorityAdmission admission = admission(2, 0, 1, 10, LONG_WAIT);
+        assertTrue(admission.acquire(Priority.STANDARD));
+        assertTrue(admission.acquire(Priority.STANDARD));
+        BlockingQueue<Priority> admitted = new LinkedBlockingQueue<>();
+        startWaiter(admission, Priority.BULK, admitted);
+
+        // 1 free, the bulk reserve
+        admission.release(Priority.STANDARD);
+        assertNull(admitted.poll(50, TimeUnit.MILLISECONDS));
+        admission.release(Priority.STANDARD);
+        assertEquals(Priority.BULK, admitted.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void requestFindingItsQueueFullIsRejectedRightAway() throws Exception {
+        PriorityAdmission admission = admission(1, 0, 0, 1, LONG_WAIT);
+        assertTrue(admission.acquire(Priority.STANDARD));
+        startWaiter(admission, Priority.STANDARD, new LinkedBlockingQueue<>());
+
+        long startedAt = System.nanoTime();
+        assertFalse(admission.acquire(Priority.STANDARD));
+
+        assertTrue(System.nanoTime() - startedAt < LONG_WAIT.toNanos() / 2);
+        assertEquals(1.0, rejected(Priority.STANDARD, "queue-full"));
+        // Other priorities have queues of their own
+        startWaiter(admission, Priority.BULK, new LinkedBlockingQueue<>());
+    }
+
+    @Test
+    void timedOutWaiterIsRemovedFromTheQueue() throws Exception {
+        PriorityAdmission admission = admission(1, 0, 0, 10, Duration.ofMillis(20));
+        assertTrue(admission.acquire(Priority.STANDARD));
+
+        assertFalse(admission.acquire(Priority.STANDARD));
+
+        assertEquals(0, admission.getQueued(Priority.STANDARD));
+        assertEquals(1.0, rejected(Priority.STANDARD, "timeout"));
+        // The freed slot isn't handed to the request that gave up
+        admission.release(Priority.STANDARD);
+        assertEquals(0, admission.getActive(Priority.STANDARD));
+        assertTrue(admission.acquire(Priority.STANDARD));
+    }
+
+    @Test
+    void interruptBeforeAdmissionLeavesTheQueue() throws Exception {
+        PriorityAdmission admission = admission(1, 0, 0, 10, LONG_WAIT);
+        assertTrue(admission.acquire(Priority.STANDARD));
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                admission.acquire(Priority.STANDARD);
+                failure.complete(null);
+            } catch (InterruptedException e) {
+                failure.complete(e);
+            }
+        });
+        waiter.start();
+        awaitUntil(() -> admission.getQueued(Priority.STANDARD) == 1);
+
+        waiter.interrupt();
+
+        assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof InterruptedException);
+        assertEquals(0, admission.getQueued(Priority.STANDARD));
+        assertEquals(1, admission.getActive(Priority.STANDARD));
+    }
+
+    @Test
+    void interruptAfterAdmissionStillCountsAsAdmitted() throws Exception {
+        PriorityAdmission admission = admission(1, 0, 0, 10, LONG_WAIT);
+        assertTrue(admission.acquire(Priority.STANDARD));
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                result.complete(admission.acquire(Priority.STANDARD));
+                interrupted.complete(Thread.currentThread().isInterrupted());
+            } catch (InterruptedException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        waiter.start();
+        awaitUntil(() -> admission.getQueued(Priority.STANDARD) == 1);
+
+        // Interrupt the waiter while it can't get the lock back, then admit it before it does
+        ReentrantLock lock = (ReentrantLock) ReflectionTestUtils.getField(admission, "lock");
+        lock.lock();
+        try {
+            waiter.interrupt();
+            awaitUntil(() -> lock.hasQueuedThread(waiter));
+            admission.release(Priority.STANDARD);
+        } finally {
+            lock.unlock();
+        }
+
+        assertTrue(result.get(5, TimeUnit.SECONDS));
+        assertTrue(interrupted.get(5, TimeUnit.SECONDS));
+        assertEquals(1, admission.getActive(Priority.STANDARD));
+        assertEquals(0, admission.getQueued(Priority.STANDARD));
+    }
+
+    @Test
+    void reservesMustNotDecreaseWithPriority() {
+        assertThrows(IllegalArgumentException.class, () -> new PriorityAdmission(4, Map.of(
+                Priority.INTERACTIVE, new Limits(0, 1, LONG_WAIT),
+                Priority.STANDARD, new Limits(2, 1, LONG_WAIT),
+                Priority.BULK, new Limits(1, 1, LONG_WAIT)), meterRegistry));
+    }
+
+    private PriorityAdmission admission(int maxConcurrent, int standardReserve, int bulkReserve, int maxQueued, Duration maxWait) {
+        return new PriorityAdmission(maxConcurrent, Map.of(
+                Priority.INTERACTIVE, new Limits(0, maxQueued, maxWait),
+                Priority.STANDARD, new Limits(standardReserve, maxQueued, maxWait),
+                Priority.BULK, new Limits(bulkReserve, maxQueued, maxWait)), meterRegistry);
+    }
+
+    /**
+     * Starts a thread that waits for admission, reports it, and keeps the slot.
+     */
+    private static void startWaiter(PriorityAdmission admission, Priority priority, BlockingQueue<Priority> admitted)
+            throws InterruptedException {
+        int queued = admission.getQueued(priority);
+        Thread waiter = new Thread(() -> {
+            try {
+                if (admission.acquire(priority)) {
+                    admitted.add(priority);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.setDaemon(true);
+        waiter.start();
+        awaitUntil(() -> admission.getQueued(priority) == queued + 1);
+    }
+
+    private double rejected(Priority priority, String reason) {
+        return meterRegistry.get("admission.rejected").tag("priority", priority.tag()).tag("reason", reason).counter().count();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting");
+            }
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.augmentative.communication.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VocabularyTrieTest {
+
+    private final VocabularyTrie trie = new VocabularyTrie();
+
+    /**
+     * What one {@link VocabularyTrie#search} reported for an entry.
+     */
+    private record Match(long id, int distance, boolean wholeTerm) {
+    }
+
+    @Test
+    void termsFoldEstonianLettersAndSplitOnSeparators() {
+        assertEquals(List.of("oun", "aadikas", "oo", "uks", "sokolaad", "zurii", "12"),
+                VocabularyTrie.terms("Õun, Äädikas; Öö-Üks  ŠOKOLAAD žürii 12"));
+        assertEquals(List.of(), VocabularyTrie.terms(" - "));
+        assertEquals(List.of(), VocabularyTrie.terms(null));
+    }
+
+    @Test
+    void searchTellsWholeTermsFromPrefixes() {
+        trie.add("oun", 1);
+        trie.add("ounamahl", 2);
+
+        assertEquals(List.of(new Match(1, 0, true), new Match(2, 0, false)), search("oun", 0));
+        assertEquals(List.of(new Match(2, 0, false)), search("ouna", 0));
+        assertEquals(List.of(new Match(2, 0, true)), search("ounamahl", 0));
+    }
+
+    @Test
+    void searchAllowsUpToMaxEditsTypos() {
+        trie.add("kartul", 1);
+
+        assertEquals(List.of(), search("kartol", 0));
+        assertEquals(List.of(new Match(1, 1, true)), search("kartol", 1));
+        // Insertion and deletion
+        assertEquals(List.of(new Match(1, 1, true)), search("karttul", 1));
+        assertEquals(List.of(new Match(1, 1, true)), search("kartl", 1));
+        assertEquals(List.of(), search("kxrtol", 1));
+        assertEquals(List.of(new Match(1, 2, true)), search("kxrtol", 2));
+        // A typo in a prefix, completed to the rest of the term
+        assertEquals(List.of(new Match(1, 1, false)), search("kxr", 1));
+    }
+
+    @Test
+    void removeKeepsOtherEntriesOfTheTerm() {
+        trie.add("kass", 1);
+        trie.add("kass", 2);
+
+        trie.remove("kass", 1);
+
+        assertEquals(List.of(new Match(2, 0, true)), search("kass", 0));
+    }
+
+    @Test
+    void removePrunesNodesLeftEmpty() {
+        trie.add("kass", 1);
+        trie.add("kassid", 2);
+
+        trie.remove("kassid", 2);
+        assertEquals(List.of(new Match(1, 0, true)), search("kass", 1));
+        assertEquals(List.of(), search("kassi", 0));
+        assertTrue(childLabels(pathTo("kass")).isEmpty());
+
+        trie.remove("kass", 1);
+        assertEquals(List.of(), search("k", 1));
+        assertTrue(childLabels(ReflectionTestUtils.getField(trie, "root")).isEmpty());
+    }
+
+    @Test
+    void removeOfMissingTermOrIdChangesNothing() {
+        trie.add("koer", 1);
+
+        trie.remove("koerad", 1);
+        trie.remove("koer", 2);
+        trie.remove("k", 1);
+
+        assertEquals(List.of(new Match(1, 0, true)), search("koer", 0));
+    }
+
+    private List<Match> search(String query, int maxEdits) {
+        List<Match> matches = new ArrayList<>();
+        trie.search(query, maxEdits, (id, distance, wholeTerm) -> matches.add(new Match(id, distance, wholeTerm)));
+        return matches;
+    }
+
+    private Object pathTo(String term) {
+        Object node = ReflectionTestUtils.getField(trie, "root");
+        for (char label : term.toCharArray()) {
+            node = ReflectionTestUtils.invokeMethod(node, "child", label);
+        }
+        return node;
+    }
+
+    private static String childLabels(Object node) {
+        return new String((char[]) ReflectionTestUtils.getField(node, "labels"));
+    }
+}